@@ -0,0 +1,109 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.GENERIC_CODE;
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.SPECIFIC_CODE;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.nmdp.service.epitope.allelecode.DbiAlleleCodeResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of DbiAlleleCodeResolver.apply() on generic, specific and XX codes.  XX codes are
+ * expanded from the database (DbiManager.getFamilyAlleleMap()) on every call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlleleCodeResolverBenchmark {
+
+	@Param({ "GENERIC", "SPECIFIC", "XX" })
+	String code;
+
+	BenchmarkFixture fixture;
+	DbiAlleleCodeResolver resolver;
+	String alleleCode;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		fixture = new BenchmarkFixture();
+		resolver = fixture.getAlleleCodeResolver();
+		switch (code) {
+		case "GENERIC":
+			alleleCode = "HLA-DPB1*04:" + GENERIC_CODE;
+			break;
+		case "SPECIFIC":
+			alleleCode = "HLA-DPB1*04:" + SPECIFIC_CODE;
+			break;
+		case "XX":
+			alleleCode = "HLA-DPB1*04:XX";
+			break;
+		default:
+			throw new IllegalArgumentException("unknown allele code kind: " + code);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.close();
+	}
+
+	@Benchmark
+	public String apply() {
+		return resolver.apply(alleleCode);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(AlleleCodeResolverBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,268 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.expandAlleleCodes;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.normalizeGroups;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.normalizePrefixes;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.trimAllelesToFields;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.flywaydb.core.Flyway;
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.client.GlClient;
+import org.nmdp.gl.client.local.LocalGlClient;
+import org.nmdp.service.epitope.allelecode.DbiAlleleCodeResolver;
+import org.nmdp.service.epitope.db.AlleleCodeRow;
+import org.nmdp.service.epitope.db.AlleleRow;
+import org.nmdp.service.epitope.db.DbiManagerImpl;
+import org.nmdp.service.epitope.db.GroupRow;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.gl.TypingPipeline;
+import org.nmdp.service.epitope.service.DatasetVersion;
+import org.nmdp.service.epitope.service.EpitopeServiceImpl;
+import org.nmdp.service.epitope.service.FrequencyServiceImpl;
+import org.nmdp.service.epitope.service.LimitMode;
+import org.nmdp.service.epitope.service.MatchMetrics;
+import org.nmdp.service.epitope.service.MatchServiceImpl;
+import org.nmdp.service.epitope.task.AlignedImmuneGroupInitializer;
+import org.nmdp.service.epitope.task.URLProcessor;
+import org.skife.jdbi.v2.DBI;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Reference data and services shared by the benchmarks.  Builds a temporary sqlite database (migrated 
+ * with the bundled race frequencies), loads immune groups from the bundled DPB1 protein file, and a 
+ * small set of synthetic allele codes and p-groups, and wires the services the same way as 
+ * LocalServiceModule, with the default configuration values.
+ */
+public class BenchmarkFixture implements Closeable {
+
+	/**
+	 * bundled protein alignment used to assign immune groups
+	 */
+	public static final String HLA_PROT_URL = "/DPB1.db.3.24.0";
+
+	/**
+	 * synthetic generic allele code (second fields only), e.g. 04:GENA -> 04:01/04:02
+	 */
+	public static final String GENERIC_CODE = "GENA";
+
+	/**
+	 * synthetic specific allele code (family included), the most frequent caucasian alleles
+	 */
+	public static final String SPECIFIC_CODE = "SPCA";
+
+	/**
+	 * alleles known to the service, but without an immune group assignment
+	 */
+	public static final List<String> UNKNOWN_GROUP_ALLELES = Arrays.asList("HLA-DPB1*999:01", "HLA-DPB1*999:02");
+
+	static final double BASELINE_ALLELE_FREQUENCY = 1.0E-5;
+	static final double MATCH_PROBABILITY_PRECISION = 1.0E-5;
+	static final long MATCH_COMPLEXITY_BUDGET = 10000000L;
+	static final long MATCH_DEADLINE_MILLIS = 10 * 1000L;
+	static final long CACHE_SIZE = 100000L;
+	static final int SPECIFIC_CODE_SIZE = 8;
+	static final List<String> P_GROUP_SUFFIXES = Arrays.asList("", ":01", ":01:01", ":01:02", ":02");
+
+	private final File dbFile;
+	private final DBI dbi;
+	private final DbiManagerImpl dbiManager;
+	private final Map<String, String> pGroupMap;
+	private final GlClient glClient;
+	private final DbiAlleleCodeResolver alleleCodeResolver;
+	private final Function<String, String> glstringTransformer;
+	private final Function<String, String> matchGlstringTransformer;
+	private final TypingPipeline genotypeListResolver;
+	private final EpitopeServiceImpl epitopeService;
+	private final FrequencyServiceImpl frequencyService;
+	private final MatchServiceImpl matchService;
+
+	public BenchmarkFixture() throws IOException {
+		dbFile = File.createTempFile("epitope-benchmark", ".db");
+		dbFile.deleteOnExit();
+		String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+		migrate(url);
+		dbi = new DBI(url);
+		dbiManager = new DbiManagerImpl(dbi);
+		new AlignedImmuneGroupInitializer(URLProcessor.getUrls(HLA_PROT_URL), dbiManager).loadImmuneGroups();
+		List<AlleleRow> alleleRows = getAlleleRows();
+		dbiManager.loadAlleles(alleleRows.iterator(), true);
+		List<GroupRow<String>> pGroupRows = getPGroupRows(alleleRows);
+		dbiManager.loadPGroups(pGroupRows.iterator(), true);
+		pGroupMap = pGroupRows.stream().collect(toMap(
+				r -> r.getLocus() + "*" + r.getAllele(), 
+				r -> r.getLocus() + "*" + r.getGroup()));
+		List<AlleleCodeRow> alleleCodeRows = getAlleleCodeRows();
+		dbiManager.loadAlleleCodes(alleleCodeRows.iterator(), true);
+		alleleCodeResolver = new DbiAlleleCodeResolver(dbiManager);
+		alleleCodeResolver.buildAlleleCodeMap(alleleCodeRows.iterator());
+		glClient = LocalGlClient.create();
+		glstringTransformer = normalizePrefixes("HLA-DPB1").andThen(expandAlleleCodes(alleleCodeResolver));
+		matchGlstringTransformer = glstringTransformer
+				.andThen(normalizeGroups(dbiManager::getPGroupForAllele))
+				.andThen(trimAllelesToFields(2));
+		epitopeService = new EpitopeServiceImpl(glClient, glstringTransformer, dbiManager);
+		epitopeService.buildImmuneGroupMaps();
+		frequencyService = new FrequencyServiceImpl(dbiManager, BASELINE_ALLELE_FREQUENCY);
+		frequencyService.buildFrequencyMap();
+		genotypeListResolver = new TypingPipeline(glClient, "HLA-DPB1", alleleCodeResolver::expand, dbiManager::getPGroupForAllele, 2, 
+				new DatasetVersion(epitopeService, frequencyService), CACHE_SIZE);
+		matchService = new MatchServiceImpl(epitopeService, genotypeListResolver, glClient, 
+				frequencyService, BASELINE_ALLELE_FREQUENCY, MATCH_PROBABILITY_PRECISION, 
+				MATCH_COMPLEXITY_BUDGET, MATCH_DEADLINE_MILLIS, LimitMode.FAIL, 0.0, CACHE_SIZE, 0L, new MatchMetrics(new MetricRegistry()));
+	}
+
+	static void migrate(String url) {
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("failed to load driver", e);
+		}
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(url, null, null);
+		flyway.migrate();
+	}
+
+	/**
+	 * @return every allele with a frequency, plus the alleles without immune group
+	 */
+	private List<AlleleRow> getAlleleRows() {
+		Set<String> alleles = new TreeSet<>(UNKNOWN_GROUP_ALLELES);
+		dbiManager.getRaceAlleleFrequencyMap().values().forEach(m -> alleles.addAll(m.keySet()));
+		return alleles.stream().map(AlleleRow::new).collect(toList());
+	}
+
+	/**
+	 * @return rows of a synthetic p-group for each allele, containing its two to four field extensions, 
+	 * in the form loaded by HlaGroupInitializer
+	 */
+	private List<GroupRow<String>> getPGroupRows(List<AlleleRow> alleleRows) {
+		List<GroupRow<String>> rows = new ArrayList<>();
+		for (AlleleRow row : alleleRows) {
+			for (String suffix : P_GROUP_SUFFIXES) {
+				rows.add(new GroupRow<>(row.getLocus(), row.getAllele() + suffix, row.getAllele() + "P"));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * @return rows of the synthetic allele codes, in the form they are read from alpha.v3
+	 */
+	private List<AlleleCodeRow> getAlleleCodeRows() {
+		List<AlleleCodeRow> rows = new ArrayList<>();
+		for (String allele : Arrays.asList("01", "02")) {
+			rows.add(new AlleleCodeRow(GENERIC_CODE, allele, true));
+		}
+		Map<String, Double> freqMap = dbiManager.getRaceAlleleFrequencyMap().get(DetailRace.CAU);
+		List<String> alleles = new ArrayList<>(freqMap.keySet());
+		Collections.sort(alleles, (a1, a2) -> Double.compare(freqMap.get(a2), freqMap.get(a1)));
+		alleles.stream()
+				.limit(SPECIFIC_CODE_SIZE)
+				.map(a -> a.substring(a.indexOf('*') + 1))
+				.forEach(a -> rows.add(new AlleleCodeRow(SPECIFIC_CODE, a, false)));
+		return rows;
+	}
+
+	/**
+	 * @return genotype list of the gl string, normalized as when matching
+	 */
+	public GenotypeList getMatchGenotypeList(String glstring) {
+		return genotypeListResolver.apply(glstring);
+	}
+
+	public DBI getDbi() {
+		return dbi;
+	}
+
+	public DbiManagerImpl getDbiManager() {
+		return dbiManager;
+	}
+
+	/**
+	 * @return the p-groups loaded into the database, keyed by allele (for use by map based resolvers)
+	 */
+	public Map<String, String> getPGroupMap() {
+		return pGroupMap;
+	}
+
+	public GlClient getGlClient() {
+		return glClient;
+	}
+
+	public DbiAlleleCodeResolver getAlleleCodeResolver() {
+		return alleleCodeResolver;
+	}
+
+	public Function<String, String> getGlstringTransformer() {
+		return glstringTransformer;
+	}
+
+	/**
+	 * @return the transformations applied to gl strings for matching, in string form (for benchmarks only; 
+	 * the service applies them to each allele as the gl string is resolved, see getGenotypeListResolver())
+	 */
+	public Function<String, String> getMatchGlstringTransformer() {
+		return matchGlstringTransformer;
+	}
+
+	public TypingPipeline getGenotypeListResolver() {
+		return genotypeListResolver;
+	}
+
+	public EpitopeServiceImpl getEpitopeService() {
+		return epitopeService;
+	}
+
+	public FrequencyServiceImpl getFrequencyService() {
+		return frequencyService;
+	}
+
+	public MatchServiceImpl getMatchService() {
+		return matchService;
+	}
+
+	@Override
+	public void close() {
+		dbFile.delete();
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.GENERIC_CODE;
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.SPECIFIC_CODE;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.expandAlleleCodes;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.normalizeGroups;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.normalizePrefixes;
+import static org.nmdp.service.epitope.gl.transform.GlStringFunctions.trimAllelesToFields;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of each GlStringFunctions transformer, and of the transformer chain applied to gl strings
+ * before matching in string form (see BenchmarkFixture.getMatchGlstringTransformer(), the string equivalent of 
+ * TypingPipeline, which is used when matching).  The p-group resolver used by 
+ * normalizeGroups() is backed either by the sqlite database (as in the service) or by a map of the same 
+ * p-groups, to separate the cost of the transformation from the cost of the lookups.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlStringFunctionsBenchmark {
+
+	static final String SHORT_PREFIX_GL = "DPB1*04:01+DPB1*02:01|DPB1*04:02+DPB1*02:01:02|04:01:01+13:01";
+	static final String ALLELE_CODE_GL = "HLA-DPB1*04:" + GENERIC_CODE + "+HLA-DPB1*02:" + SPECIFIC_CODE;
+	static final String FOUR_FIELD_GL = "HLA-DPB1*04:01:01:01/HLA-DPB1*04:01:01:02/HLA-DPB1*04:02:01"
+			+ "+HLA-DPB1*02:01:02/HLA-DPB1*02:01:01:01";
+	static final String MATCH_GL = "DPB1*04:" + GENERIC_CODE + "/DPB1*04:01:01:02+DPB1*02:01:02|DPB1*04:01+DPB1*13:01";
+
+	BenchmarkFixture fixture;
+	Function<String, String> normalizePrefixes;
+	Function<String, String> expandAlleleCodes;
+	Function<String, String> trimAllelesToFields;
+
+	/**
+	 * source of p-groups for normalizeGroups()
+	 */
+	@State(Scope.Benchmark)
+	public static class GroupResolver {
+
+		@Param({ "DBI", "MAP" })
+		String source;
+
+		Function<String, String> normalizeGroups;
+		Function<String, String> matchGlstringTransformer;
+
+		@Setup(Level.Trial)
+		public void setup(GlStringFunctionsBenchmark benchmark) {
+			BenchmarkFixture fixture = benchmark.fixture;
+			Function<String, String> resolver;
+			switch (source) {
+			case "DBI":
+				resolver = fixture.getDbiManager()::getPGroupForAllele;
+				break;
+			case "MAP":
+				Map<String, String> pGroupMap = fixture.getPGroupMap();
+				resolver = pGroupMap::get;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown group resolver source: " + source);
+			}
+			normalizeGroups = normalizeGroups(resolver);
+			matchGlstringTransformer = fixture.getGlstringTransformer()
+					.andThen(normalizeGroups)
+					.andThen(trimAllelesToFields(2));
+		}
+
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		fixture = new BenchmarkFixture();
+		normalizePrefixes = normalizePrefixes("HLA-DPB1");
+		expandAlleleCodes = expandAlleleCodes(fixture.getAlleleCodeResolver());
+		trimAllelesToFields = trimAllelesToFields(2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.close();
+	}
+
+	@Benchmark
+	public String normalizePrefixes() {
+		return normalizePrefixes.apply(SHORT_PREFIX_GL);
+	}
+
+	@Benchmark
+	public String expandAlleleCodes() {
+		return expandAlleleCodes.apply(ALLELE_CODE_GL);
+	}
+
+	@Benchmark
+	public String normalizeGroups(GroupResolver groupResolver) {
+		return groupResolver.normalizeGroups.apply(FOUR_FIELD_GL);
+	}
+
+	@Benchmark
+	public String trimAllelesToFields() {
+		return trimAllelesToFields.apply(FOUR_FIELD_GL);
+	}
+
+	@Benchmark
+	public String matchGlstringTransformer(GroupResolver groupResolver) {
+		return groupResolver.matchGlstringTransformer.apply(MATCH_GL);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(GlStringFunctionsBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+}
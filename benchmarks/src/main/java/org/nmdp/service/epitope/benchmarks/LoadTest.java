@@ -0,0 +1,418 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.dishevelled.commandline.ArgumentList;
+import org.dishevelled.commandline.CommandLine;
+import org.dishevelled.commandline.CommandLineParseException;
+import org.dishevelled.commandline.CommandLineParser;
+import org.dishevelled.commandline.Switch;
+import org.dishevelled.commandline.Usage;
+import org.dishevelled.commandline.argument.FileArgument;
+import org.dishevelled.commandline.argument.IntegerArgument;
+import org.dishevelled.commandline.argument.StringArgument;
+import org.eclipse.jetty.server.Server;
+import org.nmdp.service.epitope.client.EndpointUrl;
+import org.nmdp.service.epitope.client.EpitopeService;
+import org.nmdp.service.epitope.client.EpitopeServiceModule;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.dropwizard.EpitopeServiceApplication;
+import org.nmdp.service.epitope.dropwizard.EpitopeServiceConfiguration;
+import org.nmdp.service.epitope.resource.MatchRequest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+import io.dropwizard.setup.Environment;
+
+/**
+ * End to end load test.  Starts EpitopeServiceApplication in-process with a temporary sqlite database,
+ * loading reference data from local files, then drives /matches, /alleles and /groups with a closed 
+ * loop of client threads at each of the given concurrency levels, reporting throughput and latency 
+ * percentiles per endpoint.  Latency is measured from the start of each request, so queueing within 
+ * the client thread pool is not included; throughput flattening while latency climbs marks saturation.
+ */
+public final class LoadTest implements Callable<Integer> {
+
+	static final String USAGE = "java -cp benchmarks.jar " + LoadTest.class.getName() 
+			+ " -d data-dir -c 1,4,16,64 -m matches=8,alleles=1,groups=1 -t 30 -w 10";
+
+	/**
+	 * endpoints driven by the load test
+	 */
+	enum Operation { MATCHES, ALLELES, GROUPS }
+
+	/**
+	 * matches requested when no input file is given, limited to typings resolvable from the loaded data
+	 */
+	static final List<Typing> DEFAULT_TYPINGS = Arrays.asList(Typing.UNAMBIGUOUS, Typing.XX, Typing.MULTI_GENOTYPE);
+	static final List<DetailRace> DEFAULT_RACES = Arrays.asList(DetailRace.CAU, DetailRace.AFA, DetailRace.API, DetailRace.HIS);
+	static final String ALLELES = "HLA-DPB1*01:01,HLA-DPB1*02:01,HLA-DPB1*03:01,HLA-DPB1*04:01,HLA-DPB1*04:02";
+	static final String GROUPS = "1,2,3";
+	static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private final File dataDirectory;
+	private final int port;
+	private final int[] concurrencyLevels;
+	private final Map<Operation, Integer> mix;
+	private final int durationSeconds;
+	private final int warmupSeconds;
+	private final List<MatchRequest> matchRequests;
+
+	public LoadTest(File dataDirectory, int port, int[] concurrencyLevels, Map<Operation, Integer> mix, 
+			int durationSeconds, int warmupSeconds, List<MatchRequest> matchRequests) 
+	{
+		this.dataDirectory = dataDirectory;
+		this.port = port;
+		this.concurrencyLevels = concurrencyLevels;
+		this.mix = mix;
+		this.durationSeconds = durationSeconds;
+		this.warmupSeconds = warmupSeconds;
+		this.matchRequests = matchRequests;
+	}
+
+	/**
+	 * application that exposes its server, so it can be stopped when the load test is done
+	 */
+	static class LoadTestApplication extends EpitopeServiceApplication {
+		private volatile Server server;
+		@Override
+		public void runService(EpitopeServiceConfiguration configuration, Environment environment) throws Exception {
+			super.runService(configuration, environment);
+			environment.lifecycle().addServerLifecycleListener(server -> this.server = server);
+		}
+		void stop() throws Exception {
+			if (server != null) server.stop();
+		}
+	}
+
+	@Override
+	public Integer call() throws Exception {
+		File dbFile = File.createTempFile("epitope-loadtest", ".db");
+		File jobDirectory = Files.createTempDirectory("epitope-loadtest-jobs").toFile();
+		File configFile = File.createTempFile("epitope-loadtest", ".yml");
+		LoadTestApplication application = new LoadTestApplication();
+		try {
+			writeConfiguration(configFile, dbFile, jobDirectory);
+			// returns once the server is started, after reference data is loaded
+			application.run("server", configFile.getPath());
+			EpitopeService client = Guice.createInjector(new EpitopeServiceModule(), new AbstractModule() {
+				@Override
+				protected void configure() {
+					bind(String.class).annotatedWith(EndpointUrl.class).toInstance("http://localhost:" + port);
+				}
+			}).getInstance(EpitopeService.class);
+			System.out.println(String.format("%11s %-8s %10s %8s %10s %10s %10s %10s %10s", 
+					"concurrency", "endpoint", "requests", "errors", "req/sec", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+			for (int concurrency : concurrencyLevels) {
+				run(client, concurrency);
+			}
+			return 0;
+		} finally {
+			application.stop();
+			configFile.delete();
+			dbFile.delete();
+		}
+	}
+
+	private void writeConfiguration(File configFile, File dbFile, File jobDirectory) throws IOException {
+		try (PrintWriter writer = new PrintWriter(configFile)) {
+			writer.println("nmdpV3AlleleCodeUrls: [ '" + getDataFile("alpha.v3.zip") + "' ]");
+			writer.println("imgtHlaUrls: [ '" + getDataFile("hla.xml.zip") + "' ]");
+			writer.println("hlaAlleleUrls: [ '" + getDataFile("Allelelist.txt") + "' ]");
+			writer.println("hlaProtUrls: [ '" + getDataFile(LoaderBenchmark.BUNDLED_HLA_PROT_FILE) + "', '" 
+					+ BenchmarkFixture.HLA_PROT_URL + "' ]");
+			writer.println("jobDirectory: '" + jobDirectory.getAbsolutePath() + "'");
+			writer.println("logging:");
+			writer.println("  level: WARN");
+			writer.println("dataSourceFactory:");
+			writer.println("  driverClass: org.sqlite.JDBC");
+			writer.println("  user: na");
+			writer.println("  password: na");
+			writer.println("  url: 'jdbc:sqlite:" + dbFile.getAbsolutePath() + "'");
+			writer.println("  maxWaitForConnection: 1m");
+			writer.println("  validationQuery: 'SELECT 1'");
+			writer.println("  initialSize: 1");
+			writer.println("  minSize: 1");
+			writer.println("  maxSize: 1");
+			writer.println("server:");
+			writer.println("  applicationConnectors:");
+			writer.println("  - type: http");
+			writer.println("    port: " + port);
+			writer.println("  adminConnectors:");
+			writer.println("  - type: http");
+			writer.println("    port: " + (port + 1));
+		}
+	}
+
+	private String getDataFile(String name) {
+		return new File(dataDirectory, name).getAbsolutePath();
+	}
+
+	private void run(EpitopeService client, int concurrency) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		try {
+			runWorkers(executor, client, concurrency, warmupSeconds);
+			long start = System.nanoTime();
+			List<Worker> workers = runWorkers(executor, client, concurrency, durationSeconds);
+			double seconds = (System.nanoTime() - start) / 1.0E9;
+			Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+			Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+			Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+			long totalErrors = 0;
+			for (Operation operation : Operation.values()) {
+				histograms.put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+				errors.put(operation, 0L);
+			}
+			for (Worker worker : workers) {
+				for (Operation operation : Operation.values()) {
+					histograms.get(operation).add(worker.histograms.get(operation));
+					total.add(worker.histograms.get(operation));
+					errors.put(operation, errors.get(operation) + worker.errors.get(operation));
+					totalErrors += worker.errors.get(operation);
+				}
+			}
+			for (Operation operation : Operation.values()) {
+				if (mix.getOrDefault(operation, 0) > 0) {
+					report(concurrency, operation.name().toLowerCase(), histograms.get(operation), errors.get(operation), seconds);
+				}
+			}
+			report(concurrency, "total", total, totalErrors, seconds);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<Worker> runWorkers(ExecutorService executor, EpitopeService client, int concurrency, int seconds) 
+			throws Exception 
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		List<Worker> workers = new ArrayList<>();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++) {
+			Worker worker = new Worker(client, deadline);
+			workers.add(worker);
+			futures.add(executor.submit(worker));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		return workers;
+	}
+
+	private static void report(int concurrency, String endpoint, Histogram histogram, long errors, double seconds) {
+		System.out.println(String.format("%11d %-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f", 
+				concurrency, 
+				endpoint, 
+				histogram.getTotalCount(), 
+				errors, 
+				histogram.getTotalCount() / seconds,
+				histogram.getValueAtPercentile(50.0) / 1000.0,
+				histogram.getValueAtPercentile(99.0) / 1000.0,
+				histogram.getValueAtPercentile(99.9) / 1000.0,
+				histogram.getMaxValue() / 1000.0));
+	}
+
+	/**
+	 * client thread, issuing requests (chosen at random according to the mix) until the deadline
+	 */
+	class Worker implements Runnable {
+		final EpitopeService client;
+		final long deadline;
+		final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+		final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+		final int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+		Worker(EpitopeService client, long deadline) {
+			this.client = client;
+			this.deadline = deadline;
+			for (Operation operation : Operation.values()) {
+				histograms.put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+				errors.put(operation, 0L);
+			}
+		}
+
+		@Override
+		public void run() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			while (System.nanoTime() < deadline) {
+				Operation operation = nextOperation(random.nextInt(totalWeight));
+				long start = System.nanoTime();
+				try {
+					switch (operation) {
+					case MATCHES:
+						client.getMatches(ImmutableList.of(matchRequests.get(random.nextInt(matchRequests.size()))));
+						break;
+					case ALLELES:
+						client.getAlleles(null, ALLELES, null, null, null, null);
+						break;
+					case GROUPS:
+						client.getGroups(null, null, null, null, null, GROUPS);
+						break;
+					}
+				} catch (RuntimeException e) {
+					errors.put(operation, errors.get(operation) + 1);
+				}
+				long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+				histograms.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+			}
+		}
+
+		private Operation nextOperation(int n) {
+			for (Map.Entry<Operation, Integer> e : mix.entrySet()) {
+				n -= e.getValue();
+				if (n < 0) return e.getKey();
+			}
+			throw new IllegalStateException("empty mix");
+		}
+	}
+
+	static Map<Operation, Integer> parseMix(String s) {
+		Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+		for (String entry : s.split(",")) {
+			String[] parts = entry.split("=");
+			if (parts.length != 2) throw new IllegalArgumentException("invalid mix entry: " + entry);
+			mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.valueOf(parts[1].trim()));
+		}
+		if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+			throw new IllegalArgumentException("mix must have a positive weight: " + s);
+		}
+		return mix;
+	}
+
+	static int[] parseConcurrencyLevels(String s) {
+		return Arrays.stream(s.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+	}
+
+	/**
+	 * @return match requests from a tab delimited file, as read by EpitopeMatches (recip gl, recip race, 
+	 * donor gl, donor race, token), or the default typings if no file is given
+	 */
+	static List<MatchRequest> readMatchRequests(File inputFile) throws IOException {
+		List<MatchRequest> requests = new ArrayList<>();
+		if (inputFile == null) {
+			for (Typing typing : DEFAULT_TYPINGS) {
+				for (DetailRace race : DEFAULT_RACES) {
+					requests.add(new MatchRequest(typing.getRecipient(), race, typing.getDonor(), race, null));
+				}
+			}
+			return requests;
+		}
+		try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				String[] tokens = line.split("\t");
+				if (tokens.length < 4) {
+					throw new IOException("invalid input format at line " + lineNumber);
+				}
+				requests.add(new MatchRequest(tokens[0], getDetailRace(tokens[1]), tokens[2], getDetailRace(tokens[3]), 
+						tokens.length > 4 ? tokens[4] : null));
+			}
+		}
+		if (requests.isEmpty()) throw new IOException("no match requests in " + inputFile);
+		return Collections.unmodifiableList(requests);
+	}
+
+	private static DetailRace getDetailRace(String s) {
+		return s == null || s.equals("") ? null : DetailRace.valueOf(s);
+	}
+
+	public static void main(final String args[]) {
+		Switch help = new Switch("h", "help", "display help message");
+		FileArgument dataDirectory = new FileArgument("d", "data-dir", 
+				"directory of reference data files (hla.xml.zip, alpha.v3.zip, Allelelist.txt, DPB1.db.3.24.0), default .", false);
+		IntegerArgument port = new IntegerArgument("p", "port", "application port (admin port is the next), default 48090", false);
+		StringArgument concurrency = new StringArgument("c", "concurrency", "comma separated client concurrency levels, default 1,4,16", false);
+		StringArgument mix = new StringArgument("m", "mix", "relative weight of each endpoint, default matches=8,alleles=1,groups=1", false);
+		IntegerArgument duration = new IntegerArgument("t", "duration", "measured seconds at each concurrency level, default 30", false);
+		IntegerArgument warmup = new IntegerArgument("w", "warmup", "warmup seconds at each concurrency level, default 10", false);
+		FileArgument inputFile = new FileArgument("i", "input-file", 
+				"tab delim match requests (recip gl, recip race, donor gl, donor race, token), as read by epitope-matches", false);
+
+		ArgumentList arguments = new ArgumentList(help, dataDirectory, port, concurrency, mix, duration, warmup, inputFile);
+		CommandLine commandLine = new CommandLine(args);
+
+		LoadTest loadTest = null;
+		try
+		{
+			CommandLineParser.parse(commandLine, arguments);
+			if (help.wasFound()) {
+				Usage.usage(USAGE, null, commandLine, arguments, System.out);
+				System.exit(0);
+			}
+			loadTest = new LoadTest(
+					dataDirectory.getValue(new File(".")), 
+					port.getValue(48090), 
+					parseConcurrencyLevels(concurrency.getValue("1,4,16")), 
+					parseMix(mix.getValue("matches=8,alleles=1,groups=1")), 
+					duration.getValue(30), 
+					warmup.getValue(10), 
+					readMatchRequests(inputFile.getValue()));
+		}
+		catch (CommandLineParseException e) {
+			if (help.wasFound()) {
+				Usage.usage(USAGE, null, commandLine, arguments, System.out);
+				System.exit(0);
+			}
+			Usage.usage(USAGE, e, commandLine, arguments, System.err);
+			System.exit(-1);
+		}
+		catch (IllegalArgumentException | IOException e) {
+			Usage.usage(USAGE, e, commandLine, arguments, System.err);
+			System.exit(-1);
+		}
+		try {
+			System.exit(loadTest.call());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+}
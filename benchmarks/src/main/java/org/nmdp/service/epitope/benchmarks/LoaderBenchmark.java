@@ -0,0 +1,200 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.nmdp.service.epitope.allelecode.DbiAlleleCodeResolver;
+import org.nmdp.service.epitope.db.AlleleCodeRow;
+import org.nmdp.service.epitope.db.DbiManagerImpl;
+import org.nmdp.service.epitope.task.AlignedImmuneGroupInitializer;
+import org.nmdp.service.epitope.task.AlleleCodeInitializer;
+import org.nmdp.service.epitope.task.AlleleInitializer;
+import org.nmdp.service.epitope.task.HlaGroupInitializer;
+import org.nmdp.service.epitope.task.ImgtImmuneGroupInitializer;
+import org.nmdp.service.epitope.task.URLProcessor;
+import org.skife.jdbi.v2.DBI;
+
+/**
+ * Runs each of the reference data loaders (as run by the hourly refresh) against local copies of their 
+ * input files, each into a new temporary sqlite database, and reports rows loaded, wall time, rows/sec, 
+ * time spent in DbiManagerImpl, peak heap and bytes allocated.  Input files are read from the data 
+ * directory by their usual names; loaders whose input is missing are skipped, except that the aligned 
+ * protein file defaults to the bundled one.
+ */
+public final class LoaderBenchmark {
+
+	static final String USAGE = "java -cp benchmarks.jar " + LoaderBenchmark.class.getName() + " <data directory> [iterations]";
+
+	static final String BUNDLED_HLA_PROT_FILE = BenchmarkFixture.HLA_PROT_URL.substring(1);
+
+	/**
+	 * a loader and the name of its input file
+	 */
+	static class Loader {
+		final String name;
+		final String file;
+		final BiConsumer<URL[], TimedDbiManager> load;
+		Loader(String name, String file, BiConsumer<URL[], TimedDbiManager> load) {
+			this.name = name;
+			this.file = file;
+			this.load = load;
+		}
+	}
+
+	static final List<Loader> LOADERS = Arrays.asList(
+			new Loader("HlaGroupInitializer", "hla.xml.zip", 
+					(urls, timer) -> new HlaGroupInitializer(urls, timer.getDbiManager()).loadGroups()),
+			new Loader("AlleleCodeInitializer", "alpha.v3.zip", 
+					(urls, timer) -> new AlleleCodeInitializer(urls, timer.getDbiManager(), 
+							new CountingAlleleCodeResolver(timer)).loadAlleleCodes()),
+			new Loader("AlleleInitializer", "Allelelist.txt", 
+					(urls, timer) -> new AlleleInitializer(urls, timer.getDbiManager()).loadAlleles()),
+			new Loader("ImgtImmuneGroupInitializer", "DPB1_prot.fasta", 
+					(urls, timer) -> new ImgtImmuneGroupInitializer(urls, timer.getDbiManager()).loadImmuneGroups()),
+			new Loader("AlignedImmuneGroupInitializer", BUNDLED_HLA_PROT_FILE, 
+					(urls, timer) -> new AlignedImmuneGroupInitializer(urls, timer.getDbiManager()).loadImmuneGroups()));
+
+	/**
+	 * allele codes are only loaded into the resolver, so count them there
+	 */
+	static class CountingAlleleCodeResolver extends DbiAlleleCodeResolver {
+		private final TimedDbiManager timer;
+		CountingAlleleCodeResolver(TimedDbiManager timer) {
+			super(timer.getDbiManager());
+			this.timer = timer;
+		}
+		@Override
+		public void buildAlleleCodeMap(Iterator<AlleleCodeRow> alleleCodeIter) {
+			super.buildAlleleCodeMap(timer.count(alleleCodeIter));
+		}
+	}
+
+	private final File dataDirectory;
+	private final int iterations;
+
+	public LoaderBenchmark(File dataDirectory, int iterations) {
+		this.dataDirectory = dataDirectory;
+		this.iterations = iterations;
+	}
+
+	public void run() throws IOException {
+		System.out.println(String.format("%-30s %4s %10s %10s %12s %10s %12s %12s", 
+				"loader", "iter", "rows", "wall ms", "rows/sec", "dbi ms", "peak heap MB", "alloc MB"));
+		for (Loader loader : LOADERS) {
+			URL[] urls = getUrls(loader);
+			if (urls.length == 0) {
+				System.out.println(String.format("%-30s skipped, %s not found in %s", loader.name, loader.file, dataDirectory));
+				continue;
+			}
+			for (int i = 1; i <= iterations; i++) {
+				run(loader, urls, i);
+			}
+		}
+	}
+
+	private URL[] getUrls(Loader loader) {
+		File file = new File(dataDirectory, loader.file);
+		if (file.isFile()) return URLProcessor.getUrls(file.getPath());
+		if (loader.file.equals(BUNDLED_HLA_PROT_FILE)) return URLProcessor.getUrls(BenchmarkFixture.HLA_PROT_URL);
+		return new URL[0];
+	}
+
+	private void run(Loader loader, URL[] urls, int iteration) throws IOException {
+		File dbFile = File.createTempFile("epitope-loader", ".db");
+		try {
+			String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+			BenchmarkFixture.migrate(url);
+			TimedDbiManager timer = new TimedDbiManager(new DbiManagerImpl(new DBI(url)));
+			System.gc();
+			resetPeakHeap();
+			long allocated = getAllocatedBytes();
+			long start = System.nanoTime();
+			loader.load.accept(urls, timer);
+			long wallNanos = System.nanoTime() - start;
+			allocated = getAllocatedBytes() - allocated;
+			System.out.println(String.format("%-30s %4d %10d %10d %12.0f %10d %12.1f %12.1f", 
+					loader.name, 
+					iteration, 
+					timer.getRows(), 
+					wallNanos / 1000000L, 
+					timer.getRows() * 1.0E9 / wallNanos, 
+					timer.getDbiNanos() / 1000000L, 
+					getPeakHeap() / 1048576.0, 
+					allocated < 0 ? Double.NaN : allocated / 1048576.0));
+		} finally {
+			dbFile.delete();
+		}
+	}
+
+	private static void resetPeakHeap() {
+		ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+	}
+
+	/**
+	 * @return sum of the peak usage of the heap pools since the last reset (an upper bound on peak heap, 
+	 * since pools don't necessarily peak at the same time)
+	 */
+	private static long getPeakHeap() {
+		return ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(p -> p.getType() == MemoryType.HEAP)
+				.mapToLong(p -> p.getPeakUsage().getUsed())
+				.sum();
+	}
+
+	/**
+	 * @return bytes allocated by the current thread (loaders run on the calling thread), or -1 if not supported
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) return -1L;
+		return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("usage: " + USAGE);
+			System.exit(1);
+		}
+		File dataDirectory = new File(args[0]);
+		if (!dataDirectory.isDirectory()) {
+			System.err.println("not a directory: " + dataDirectory);
+			System.exit(1);
+		}
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		new LoaderBenchmark(dataDirectory, iterations).run();
+	}
+
+}
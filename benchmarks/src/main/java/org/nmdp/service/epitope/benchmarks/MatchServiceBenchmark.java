@@ -0,0 +1,108 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.domain.MatchResult;
+import org.nmdp.service.epitope.service.MatchServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of MatchServiceImpl.getMatch(), from gl strings (including transformation and 
+ * parsing) and from already resolved genotype lists.  Run with the gc profiler (as main() does) 
+ * to also report allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchServiceBenchmark {
+
+	@Param({ "UNAMBIGUOUS", "ALLELE_CODE", "XX", "MULTI_GENOTYPE", "UNKNOWN_GROUP" })
+	Typing typing;
+
+	@Param({ "CAU", "AFA", "API", "HIS", "UNK" })
+	DetailRace race;
+
+	BenchmarkFixture fixture;
+	MatchServiceImpl matchService;
+	GenotypeList recipientGl;
+	GenotypeList donorGl;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		fixture = new BenchmarkFixture();
+		matchService = fixture.getMatchService();
+		recipientGl = fixture.getMatchGenotypeList(typing.getRecipient());
+		donorGl = fixture.getMatchGenotypeList(typing.getDonor());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.close();
+	}
+
+	@Benchmark
+	public MatchResult glString() {
+		return matchService.getMatch(typing.getRecipient(), race, typing.getDonor(), race);
+	}
+
+	@Benchmark
+	public MatchResult genotypeList() {
+		return matchService.getMatch(recipientGl, race, donorGl, race);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(MatchServiceBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+}
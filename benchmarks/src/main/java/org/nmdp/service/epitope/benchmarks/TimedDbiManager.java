@@ -0,0 +1,126 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+import org.nmdp.service.epitope.db.DbiManager;
+
+/**
+ * Wraps a DbiManager to measure the time spent in its methods, and counts the rows of the iterators
+ * passed to it.  Rows are usually produced lazily by the caller (e.g. parsed from the input file as the 
+ * database consumes them), so the time spent producing rows is measured separately and excluded from 
+ * the database time.
+ */
+public class TimedDbiManager implements InvocationHandler {
+
+	private final DbiManager target;
+	private final DbiManager proxy;
+	private long nanos;
+	private long sourceNanos;
+	private long rows;
+	private int depth;
+
+	public TimedDbiManager(DbiManager target) {
+		this.target = target;
+		this.proxy = (DbiManager) Proxy.newProxyInstance(
+				DbiManager.class.getClassLoader(), new Class<?>[] { DbiManager.class }, this);
+	}
+
+	/**
+	 * @return the timed DbiManager
+	 */
+	public DbiManager getDbiManager() {
+		return proxy;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (args != null) {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i] instanceof Iterator) args[i] = count((Iterator<?>) args[i]);
+			}
+		}
+		long start = System.nanoTime();
+		depth++;
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			depth--;
+			nanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * @return iterator that counts the rows of the given iterator, and the time spent producing them
+	 */
+	public <T> Iterator<T> count(Iterator<T> iterator) {
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				long start = System.nanoTime();
+				try {
+					return iterator.hasNext();
+				} finally {
+					addSourceNanos(System.nanoTime() - start);
+				}
+			}
+			@Override
+			public T next() {
+				long start = System.nanoTime();
+				try {
+					T next = iterator.next();
+					rows++;
+					return next;
+				} finally {
+					addSourceNanos(System.nanoTime() - start);
+				}
+			}
+		};
+	}
+
+	private void addSourceNanos(long elapsed) {
+		// only rows consumed by the database are part of its time
+		if (depth > 0) sourceNanos += elapsed;
+	}
+
+	/**
+	 * @return time spent in the database, excluding the time spent producing rows
+	 */
+	public long getDbiNanos() {
+		return nanos - sourceNanos;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.GENERIC_CODE;
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.SPECIFIC_CODE;
+import static org.nmdp.service.epitope.benchmarks.BenchmarkFixture.UNKNOWN_GROUP_ALLELES;
+
+/**
+ * Recipient and donor typings of the kinds seen in match requests.
+ */
+public enum Typing {
+
+	/**
+	 * single genotype, one allele per haplotype
+	 */
+	UNAMBIGUOUS(
+			"HLA-DPB1*04:01+HLA-DPB1*02:01",
+			"HLA-DPB1*04:01+HLA-DPB1*03:01"),
+
+	/**
+	 * generic and specific allele codes
+	 */
+	ALLELE_CODE(
+			"HLA-DPB1*04:" + GENERIC_CODE + "+HLA-DPB1*02:" + GENERIC_CODE,
+			"HLA-DPB1*04:" + SPECIFIC_CODE + "+HLA-DPB1*01:" + SPECIFIC_CODE),
+
+	/**
+	 * XX codes, expanding to every known allele of the family
+	 */
+	XX(
+			"HLA-DPB1*04:XX+HLA-DPB1*02:XX",
+			"HLA-DPB1*01:XX+HLA-DPB1*04:XX"),
+
+	/**
+	 * genotype ambiguity
+	 */
+	MULTI_GENOTYPE(
+			"HLA-DPB1*04:01+HLA-DPB1*02:01|HLA-DPB1*04:02+HLA-DPB1*02:01|HLA-DPB1*04:01+HLA-DPB1*02:02",
+			"HLA-DPB1*04:01+HLA-DPB1*03:01|HLA-DPB1*04:01+HLA-DPB1*14:01"),
+
+	/**
+	 * an allele without immune group assignment
+	 */
+	UNKNOWN_GROUP(
+			"HLA-DPB1*04:01+" + UNKNOWN_GROUP_ALLELES.get(0),
+			"HLA-DPB1*04:01/HLA-DPB1*04:02+HLA-DPB1*02:01");
+
+	private final String recipient;
+	private final String donor;
+
+	private Typing(String recipient, String donor) {
+		this.recipient = recipient;
+		this.donor = donor;
+	}
+
+	public String getRecipient() {
+		return recipient;
+	}
+
+	public String getDonor() {
+		return donor;
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import org.dishevelled.commandline.ArgumentList;
+import org.dishevelled.commandline.CommandLine;
+import org.dishevelled.commandline.CommandLineParseException;
+import org.dishevelled.commandline.CommandLineParser;
+import org.dishevelled.commandline.Switch;
+import org.dishevelled.commandline.Usage;
+import org.dishevelled.commandline.argument.DoubleArgument;
+import org.dishevelled.commandline.argument.FileArgument;
+import org.dishevelled.commandline.argument.IntegerArgument;
+import org.dishevelled.commandline.argument.LongArgument;
+import org.dishevelled.commandline.argument.StringArgument;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.task.URLProcessor;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Generates synthetic match requests, sampling DPB1 genotypes from the race frequency table (under 
+ * Hardy-Weinberg equilibrium, as the match service assumes) for each race.  A configurable fraction of 
+ * alleles is encoded as NMDP allele codes (from an alpha.v3 allele code file), as XX codes or replaced 
+ * by novel alleles, and a fraction of typings is given genotype ambiguity.  Output is tab delimited, 
+ * as read by epitope-matches (recip gl, recip race, donor gl, donor race, token).
+ * <p>
+ * As in the database, detail races use the frequencies of their broad race, overridden by their own 
+ * where available; races without frequencies draw alleles uniformly (the service uses a baseline 
+ * frequency for them).  Only allele codes whose every allele has a frequency are used, so that allele 
+ * codes don't introduce unknown alleles of their own.
+ */
+public final class WorkloadGenerator implements Callable<Integer> {
+
+	static final String USAGE = "java -cp benchmarks.jar " + WorkloadGenerator.class.getName() 
+			+ " -n 10000 -a alpha.v3.zip -o workload.tsv";
+
+	static final String LOCUS = "HLA-DPB1";
+	static final String RACE_FREQ_RESOURCE = "/db/v2/race_freq.csv";
+
+	private final int count;
+	private final long seed;
+	private final File raceFreqFile;
+	private final File alleleCodeFile;
+	private final double alleleCodeFraction;
+	private final double xxFraction;
+	private final double novelFraction;
+	private final double multiGenotypeFraction;
+	private final List<DetailRace> races;
+	private final File outputFile;
+
+	private Map<DetailRace, Sampler> samplers;
+	private Map<String, List<String>> alleleCodes = new HashMap<>();
+	private Random random;
+
+	public WorkloadGenerator(int count, long seed, File raceFreqFile, File alleleCodeFile, double alleleCodeFraction, 
+			double xxFraction, double novelFraction, double multiGenotypeFraction, List<DetailRace> races, File outputFile) 
+	{
+		this.count = count;
+		this.seed = seed;
+		this.raceFreqFile = raceFreqFile;
+		this.alleleCodeFile = alleleCodeFile;
+		this.alleleCodeFraction = alleleCodeFraction;
+		this.xxFraction = xxFraction;
+		this.novelFraction = novelFraction;
+		this.multiGenotypeFraction = multiGenotypeFraction;
+		this.races = races;
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * samples alleles from a frequency distribution
+	 */
+	static class Sampler {
+		final String[] alleles;
+		final double[] cumulative;
+		Sampler(Map<String, Double> frequencies) {
+			alleles = frequencies.keySet().toArray(new String[0]);
+			cumulative = new double[alleles.length];
+			double total = 0.0;
+			for (int i = 0; i < alleles.length; i++) {
+				total += frequencies.get(alleles[i]);
+				cumulative[i] = total;
+			}
+		}
+		String sample(Random random) {
+			int i = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+			if (i < 0) i = -i - 1;
+			return alleles[Math.min(i, alleles.length - 1)];
+		}
+	}
+
+	@Override
+	public Integer call() throws IOException {
+		random = new Random(seed);
+		Map<String, Map<String, Double>> raceFreqMap = readRaceFrequencies();
+		samplers = getSamplers(raceFreqMap);
+		Set<String> knownAlleles = raceFreqMap.values().stream()
+				.flatMap(m -> m.keySet().stream())
+				.collect(Collectors.toSet());
+		if (alleleCodeFile != null) {
+			alleleCodes = readAlleleCodes(knownAlleles);
+		} else if (alleleCodeFraction > 0.0) {
+			System.err.println("no allele code file given, alleles will not be encoded as allele codes");
+		}
+		try (PrintWriter writer = (outputFile == null) 
+				? new PrintWriter(new OutputStreamWriter(System.out)) 
+				: new PrintWriter(new FileOutputStream(outputFile))) 
+		{
+			for (int i = 1; i <= count; i++) {
+				DetailRace recipientRace = races.get(random.nextInt(races.size()));
+				DetailRace donorRace = races.get(random.nextInt(races.size()));
+				writer.println(getTyping(recipientRace) + "\t" + recipientRace + "\t" 
+						+ getTyping(donorRace) + "\t" + donorRace + "\t" + String.format("w%07d", i));
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return map of race code to allele (without locus) to frequency
+	 */
+	private Map<String, Map<String, Double>> readRaceFrequencies() throws IOException {
+		Map<String, Map<String, Double>> map = new TreeMap<>();
+		InputStream is = (raceFreqFile == null) 
+				? getClass().getResourceAsStream(RACE_FREQ_RESOURCE) 
+				: new FileInputStream(raceFreqFile);
+		if (is == null) throw new IOException("race frequency resource not found: " + RACE_FREQ_RESOURCE);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				List<String> parsed = Splitter.on(",").trimResults().splitToList(line);
+				if (parsed.size() != 4 || !parsed.get(0).equals(LOCUS)) continue;
+				map.computeIfAbsent(parsed.get(1), r -> new TreeMap<>()).put(parsed.get(2), Double.valueOf(parsed.get(3)));
+			}
+		}
+		return map;
+	}
+
+	private Map<DetailRace, Sampler> getSamplers(Map<String, Map<String, Double>> raceFreqMap) {
+		Map<String, Double> uniform = new TreeMap<>();
+		raceFreqMap.values().forEach(m -> m.keySet().forEach(a -> uniform.put(a, 1.0)));
+		Map<DetailRace, Sampler> map = new EnumMap<>(DetailRace.class);
+		for (DetailRace race : DetailRace.values()) {
+			Map<String, Double> broad = raceFreqMap.get(race.getBroadRace().name());
+			if (broad == null) {
+				map.put(race, new Sampler(uniform));
+				continue;
+			}
+			Map<String, Double> detail = raceFreqMap.getOrDefault(race.name(), broad);
+			Map<String, Double> frequencies = new TreeMap<>();
+			broad.forEach((a, f) -> frequencies.put(a, detail.getOrDefault(a, f)));
+			map.put(race, new Sampler(frequencies));
+		}
+		return map;
+	}
+
+	/**
+	 * @return map of allele (without locus) to the allele codes (with the family they apply to) that include it
+	 */
+	private Map<String, List<String>> readAlleleCodes(Set<String> knownAlleles) {
+		Map<String, List<String>> map = new HashMap<>();
+		Set<String> families = knownAlleles.stream().map(a -> a.substring(0, a.indexOf(':'))).collect(Collectors.toSet());
+		URL[] urls = URLProcessor.getUrls(alleleCodeFile.getPath());
+		new URLProcessor(urls, alleleCodeFile.getName().endsWith(".zip")).process(is -> {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+				String line;
+				while ((line = reader.readLine()) != null && line.length() != 0) continue;	// skip header
+				while ((line = reader.readLine()) != null) {
+					List<String> parsed = Splitter.on("\t").splitToList(line);
+					if (parsed.size() != 3) continue;
+					boolean generic = !("*".equals(parsed.get(0)));
+					String code = parsed.get(1);
+					List<String> alleles = Splitter.on("/").splitToList(parsed.get(2));
+					if (generic) {
+						for (String family : families) {
+							addAlleleCode(map, knownAlleles, family, code, alleles.stream()
+									.map(a -> family + ":" + a)
+									.collect(Collectors.toList()));
+						}
+					} else {
+						List<String> trimmed = alleles.stream().map(WorkloadGenerator::trimToTwoFields).collect(Collectors.toList());
+						String family = trimmed.get(0).substring(0, trimmed.get(0).indexOf(':'));
+						addAlleleCode(map, knownAlleles, family, code, trimmed);
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("failed to read allele codes", e);
+			}
+		}, 0L);
+		return map;
+	}
+
+	private static void addAlleleCode(Map<String, List<String>> map, Set<String> knownAlleles, 
+			String family, String code, List<String> alleles) 
+	{
+		if (alleles.size() < 2 || !knownAlleles.containsAll(alleles)) return;
+		for (String allele : new HashSet<>(alleles)) {
+			map.computeIfAbsent(allele, a -> new ArrayList<>()).add(family + ":" + code);
+		}
+	}
+
+	private static String trimToTwoFields(String allele) {
+		int i = allele.indexOf(':');
+		if (i < 0) return allele;
+		int j = allele.indexOf(':', i + 1);
+		return (j < 0) ? allele : allele.substring(0, j);
+	}
+
+	/**
+	 * @return gl string of a genotype sampled for the race, with genotype ambiguity for a fraction of typings
+	 */
+	private String getTyping(DetailRace race) {
+		Sampler sampler = samplers.get(race);
+		String a1 = sampler.sample(random);
+		String a2 = sampler.sample(random);
+		if (random.nextDouble() < multiGenotypeFraction) {
+			// ambiguity typically concerns a single position: vary one allele of each additional genotype
+			StringBuilder sb = new StringBuilder(LOCUS + "*" + a1 + "+" + LOCUS + "*" + a2);
+			int genotypes = 2 + random.nextInt(3);
+			for (int i = 1; i < genotypes; i++) {
+				String other = sampler.sample(random);
+				if (random.nextBoolean()) {
+					sb.append("|" + LOCUS + "*" + other + "+" + LOCUS + "*" + a2);
+				} else {
+					sb.append("|" + LOCUS + "*" + a1 + "+" + LOCUS + "*" + other);
+				}
+			}
+			return sb.toString();
+		}
+		return encode(a1) + "+" + encode(a2);
+	}
+
+	/**
+	 * @return the allele, possibly encoded as an allele code or XX code, or replaced by a novel allele
+	 */
+	private String encode(String allele) {
+		String family = allele.substring(0, allele.indexOf(':'));
+		double r = random.nextDouble();
+		if (r < novelFraction) {
+			return LOCUS + "*" + family + ":" + (900 + random.nextInt(100));
+		}
+		r -= novelFraction;
+		if (r < xxFraction) {
+			return LOCUS + "*" + family + ":XX";
+		}
+		r -= xxFraction;
+		List<String> codes = alleleCodes.get(allele);
+		if (r < alleleCodeFraction && codes != null) {
+			return LOCUS + "*" + codes.get(random.nextInt(codes.size()));
+		}
+		return LOCUS + "*" + allele;
+	}
+
+	public static void main(final String args[]) {
+		Switch help = new Switch("h", "help", "display help message");
+		IntegerArgument count = new IntegerArgument("n", "count", "number of match requests, default 1000", false);
+		LongArgument seed = new LongArgument("s", "seed", "random seed, default 1", false);
+		FileArgument raceFreqFile = new FileArgument("f", "race-freq-file", 
+				"race frequency csv file (locus, race, allele, frequency), default db/v2/race_freq.csv", false);
+		FileArgument alleleCodeFile = new FileArgument("a", "allele-code-file", "NMDP allele code file (alpha.v3.zip or alpha.v3.txt)", false);
+		DoubleArgument alleleCodeFraction = new DoubleArgument("c", "allele-code-fraction", "fraction of alleles encoded as allele codes, default 0.2", false);
+		DoubleArgument xxFraction = new DoubleArgument("x", "xx-fraction", "fraction of alleles encoded as XX codes, default 0.05", false);
+		DoubleArgument novelFraction = new DoubleArgument("v", "novel-fraction", "fraction of alleles replaced by novel alleles, default 0.01", false);
+		DoubleArgument multiGenotypeFraction = new DoubleArgument("g", "multi-genotype-fraction", 
+				"fraction of typings with genotype ambiguity, default 0.1", false);
+		StringArgument races = new StringArgument("r", "races", "comma separated race codes, default all", false);
+		FileArgument outputFile = new FileArgument("o", "output-file", 
+				"tab delim output file (recip gl, recip race, donor gl, donor race, token) (default stdout)", false);
+
+		ArgumentList arguments = new ArgumentList(help, count, seed, raceFreqFile, alleleCodeFile, alleleCodeFraction, 
+				xxFraction, novelFraction, multiGenotypeFraction, races, outputFile);
+		CommandLine commandLine = new CommandLine(args);
+
+		WorkloadGenerator generator = null;
+		try
+		{
+			CommandLineParser.parse(commandLine, arguments);
+			if (help.wasFound()) {
+				Usage.usage(USAGE, null, commandLine, arguments, System.out);
+				System.exit(0);
+			}
+			List<DetailRace> raceList = (races.getValue() == null) 
+					? Arrays.asList(DetailRace.values()) 
+					: Splitter.on(",").trimResults().splitToList(races.getValue()).stream()
+							.map(DetailRace::valueOf)
+							.collect(Collectors.toList());
+			generator = new WorkloadGenerator(
+					count.getValue(1000), 
+					seed.getValue(1L), 
+					raceFreqFile.getValue(), 
+					alleleCodeFile.getValue(), 
+					alleleCodeFraction.getValue(0.2), 
+					xxFraction.getValue(0.05), 
+					novelFraction.getValue(0.01), 
+					multiGenotypeFraction.getValue(0.1), 
+					raceList, 
+					outputFile.getValue());
+		}
+		catch (CommandLineParseException e) {
+			if (help.wasFound()) {
+				Usage.usage(USAGE, null, commandLine, arguments, System.out);
+				System.exit(0);
+			}
+			Usage.usage(USAGE, e, commandLine, arguments, System.err);
+			System.exit(-1);
+		}
+		catch (IllegalArgumentException e) {
+			Usage.usage(USAGE, e, commandLine, arguments, System.err);
+			System.exit(-1);
+		}
+		try {
+			System.exit(generator.call());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+}
@@ -34,6 +34,8 @@ public class MatchResult {
 	private Double gvhNonPermissiveMismatchProbability;
 	private Double unknownProbability;
 	private MatchGrade matchGrade;
+	private Long pairsEvaluated;
+	private Double discardedProbability;
 
 	/**
 	 * Construct a new MatchResult with match grade and given likelihoods of various outcomes. 
@@ -51,6 +53,56 @@ public class MatchResult {
 			Double gvhNonPermissiveMismatchProbability,
 			Double unknownProbability, 
 			MatchGrade matchGrade)
+	{
+		this(matchProbability, permissiveMismatchProbability, hvgNonPermissiveMismatchProbability, 
+				gvhNonPermissiveMismatchProbability, unknownProbability, matchGrade, null);
+	}
+
+	/**
+	 * Construct a new MatchResult with match grade, given likelihoods of various outcomes, and the number of allele 
+	 * pair comparisons evaluated to produce it. 
+	 * @param matchProbability probability of a match.
+	 * @param permissiveMismatchProbability probability of a mismatch.
+	 * @param hvgNonPermissiveMismatchProbability probability of a host vs graft non-permissive mismatch.
+	 * @param gvhNonPermissiveMismatchProbability probability of a graft vs host non-permissive mismatch.
+	 * @param unknownProbability probability that the outcome is unknown, because the TCE group of one or more alleles is unknown.
+	 * @param matchGrade most likely match grade, in the case where frequency information is not for all alleles, most pessimistic match grade otherwise.
+	 * @param pairsEvaluated number of recipient/donor allele pair comparisons evaluated.
+	 */
+	public MatchResult(
+			Double matchProbability,
+			Double permissiveMismatchProbability,
+			Double hvgNonPermissiveMismatchProbability,
+			Double gvhNonPermissiveMismatchProbability,
+			Double unknownProbability, 
+			MatchGrade matchGrade,
+			Long pairsEvaluated)
+	{
+		this(matchProbability, permissiveMismatchProbability, hvgNonPermissiveMismatchProbability, 
+				gvhNonPermissiveMismatchProbability, unknownProbability, matchGrade, pairsEvaluated, null);
+	}
+
+	/**
+	 * Construct a new MatchResult with match grade, given likelihoods of various outcomes, the number of allele 
+	 * pair comparisons evaluated to produce it, and the probability mass discarded by pruning. 
+	 * @param matchProbability probability of a match.
+	 * @param permissiveMismatchProbability probability of a mismatch.
+	 * @param hvgNonPermissiveMismatchProbability probability of a host vs graft non-permissive mismatch.
+	 * @param gvhNonPermissiveMismatchProbability probability of a graft vs host non-permissive mismatch.
+	 * @param unknownProbability probability that the outcome is unknown, because the TCE group of one or more alleles is unknown.
+	 * @param matchGrade most likely match grade, in the case where frequency information is not for all alleles, most pessimistic match grade otherwise.
+	 * @param pairsEvaluated number of recipient/donor allele pair comparisons evaluated.
+	 * @param discardedProbability bound on the error of each probability due to pruning of infrequent alleles.
+	 */
+	public MatchResult(
+			Double matchProbability,
+			Double permissiveMismatchProbability,
+			Double hvgNonPermissiveMismatchProbability,
+			Double gvhNonPermissiveMismatchProbability,
+			Double unknownProbability, 
+			MatchGrade matchGrade,
+			Long pairsEvaluated,
+			Double discardedProbability)
 	{
 		this.matchProbability = matchProbability;
 		this.permissiveMismatchProbability = permissiveMismatchProbability;
@@ -58,6 +110,8 @@ public class MatchResult {
 		this.gvhNonPermissiveMismatchProbability = gvhNonPermissiveMismatchProbability;
 		this.unknownProbability = unknownProbability;
 		this.matchGrade = matchGrade;
+		this.pairsEvaluated = pairsEvaluated;
+		this.discardedProbability = discardedProbability;
 	}
 	
 	/**
@@ -103,6 +157,22 @@ public class MatchResult {
 		return matchGrade;
 	}
 
+	/**
+	 * @return number of recipient/donor allele pair comparisons evaluated (null if not reported).
+	 */
+	public Long getPairsEvaluated() {
+		return pairsEvaluated;
+	}
+
+	/**
+	 * @return probability mass of the recipient/donor pair combinations discarded by pruning infrequent alleles 
+	 * (null if pruning is disabled).  Each reported probability differs from the unpruned probability by at most 
+	 * this amount, and outcomes with an unpruned probability below it may not be reflected in the match grade.
+	 */
+	public Double getDiscardedProbability() {
+		return discardedProbability;
+	}
+
 	@Override
 	public String toString() {
 		return "MatchResult [matchProbability=" + matchProbability
@@ -113,7 +183,9 @@ public class MatchResult {
 				+ ", gvhNonPermissiveMismatchProbability="
 				+ gvhNonPermissiveMismatchProbability + ", unknownProbability="
 				+ unknownProbability + ", matchGrade="
-				+ matchGrade + "]";
+				+ matchGrade + ", pairsEvaluated=" 
+				+ pairsEvaluated + ", discardedProbability="
+				+ discardedProbability + "]";
 	}
 	
 }
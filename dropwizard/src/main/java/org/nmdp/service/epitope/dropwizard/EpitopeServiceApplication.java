@@ -37,9 +37,14 @@ import org.nmdp.service.epitope.guice.ConfigurationBindings;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.RefreshMillis;
 import org.nmdp.service.epitope.guice.LocalServiceModule;
 import org.nmdp.service.epitope.resource.impl.AlleleResource;
+import org.nmdp.service.epitope.resource.impl.ComputeExecutor;
 import org.nmdp.service.epitope.resource.impl.GroupResource;
+import org.nmdp.service.epitope.resource.impl.JobResource;
+import org.nmdp.service.epitope.resource.impl.MatchJobManager;
 import org.nmdp.service.epitope.resource.impl.MatchResource;
 import org.nmdp.service.epitope.resource.impl.ResourceModule;
+import org.nmdp.service.epitope.resource.impl.SlowRequestLog;
+import org.nmdp.service.epitope.resource.impl.TraceSampler;
 import org.nmdp.service.epitope.service.EpitopeService;
 import org.nmdp.service.epitope.service.FrequencyService;
 import org.nmdp.service.epitope.task.AlleleCodeInitializer;
@@ -48,6 +53,7 @@ import org.nmdp.service.epitope.task.HlaGroupInitializer;
 import org.nmdp.service.epitope.task.ImmuneGroupInitializer;
 import org.skife.jdbi.v2.DBI;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -124,6 +130,7 @@ public class EpitopeServiceApplication extends CommonServiceApplication<EpitopeS
 					@Override protected void configure() {
 						DBI dbi = new DBIFactory().build(environment, configuration.getDataSourceFactory(), "sqlite");
 						bind(DBI.class).toInstance(dbi);
+						bind(MetricRegistry.class).toInstance(environment.metrics());
 					}});
 
 	    environment.getObjectMapper()
@@ -177,9 +184,42 @@ public class EpitopeServiceApplication extends CommonServiceApplication<EpitopeS
     	final GroupResource groupResource = injector.getInstance(GroupResource.class);
     	environment.jersey().register(groupResource);
     	
+    	final ComputeExecutor computeExecutor = injector.getInstance(ComputeExecutor.class);
+    	environment.lifecycle().manage(new Managed() {
+	    	@Override public void start() throws Exception {}
+	    	@Override public void stop() throws Exception {
+	    		computeExecutor.stop();
+	    	}
+    	});
+    	final SlowRequestLog slowRequestLog = injector.getInstance(SlowRequestLog.class);
+    	environment.lifecycle().manage(new Managed() {
+	    	@Override public void start() throws Exception {}
+	    	@Override public void stop() throws Exception {
+	    		slowRequestLog.stop();
+	    	}
+    	});
+    	final TraceSampler traceSampler = injector.getInstance(TraceSampler.class);
+    	environment.lifecycle().manage(new Managed() {
+	    	@Override public void start() throws Exception {}
+	    	@Override public void stop() throws Exception {
+	    		traceSampler.stop();
+	    	}
+    	});
     	final MatchResource matchResource = injector.getInstance(MatchResource.class);
     	environment.jersey().register(matchResource);
 
+    	final MatchJobManager matchJobManager = injector.getInstance(MatchJobManager.class);
+    	environment.lifecycle().manage(new Managed() {
+	    	@Override public void start() throws Exception {
+	    		matchJobManager.start();
+	    	}
+	    	@Override public void stop() throws Exception {
+	    		matchJobManager.stop();
+	    	}
+    	});
+    	final JobResource jobResource = injector.getInstance(JobResource.class);
+    	environment.jersey().register(jobResource);
+
     	environment.jersey().register(new org.nmdp.service.epitope.resource.impl.ExceptionMapper());
     	
     	// eriktodo: multibinder for health checks
@@ -28,6 +28,7 @@ import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
 import io.dropwizard.flyway.FlywayFactory;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.*;
+import org.nmdp.service.epitope.service.LimitMode;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -114,6 +115,66 @@ public class EpitopeServiceConfiguration extends Configuration {
      */
 	private double matchProbabilityPrecision = 1.0E-5;
 
+    /** directory to which asynchronous match job results are spilled
+     */
+    private String jobDirectory = System.getProperty("java.io.tmpdir") + "/epitope-service-jobs";
+
+    /** number of milliseconds match job results are kept after the job finishes
+     */
+    private long jobRetentionMillis = 24 * 60 * 60 * 1000L;
+
+    /** number of threads working on asynchronous match jobs
+     */
+    private int jobWorkerThreads = 2;
+
+    /** number of submitted match jobs allowed to wait for a worker
+     */
+    private int jobQueueSize = 100;
+
+    /** number of threads computing results for asynchronous (suspended) requests
+     */
+    private int computeThreads = Runtime.getRuntime().availableProcessors();
+
+    /** number of asynchronous requests allowed to wait for a compute thread
+     */
+    private int computeQueueSize = 200;
+
+    /** maximum number of match requests running or waiting on the compute executor
+     */
+    private int matchBulkheadSize = 100;
+
+    /** number of seconds clients are asked to wait before retrying a rejected request
+     */
+    private int retryAfterSeconds = 5;
+
+    /** maximum estimated number of allele pair evaluations for a single match
+     */
+    private long matchComplexityBudget = 10000000L;
+
+    /** number of milliseconds a single match may run before it is abandoned (0 for no deadline)
+     */
+    private long matchDeadlineMillis = 10 * 1000L;
+
+    /** behavior when a match exceeds its complexity budget or deadline (FAIL or GROUP_ONLY)
+     */
+    private LimitMode matchLimitMode = LimitMode.FAIL;
+
+    /** cumulative frequency (as a fraction of the haplotype) of the least frequent alleles of a haplotype that may be discarded before matching (0 to disable pruning)
+     */
+    private double matchPruneThreshold = 0.0;
+
+    /** latency (in milliseconds) above which match requests are written to the slow request log, or 0 to disable
+     */
+    private long slowRequestMillis = 1000L;
+
+    /** fraction of match requests to trace (without the trace parameter), writing their traces to the match trace log
+     */
+    private double traceSampleRate = 0.0;
+
+    /** maximum number of match results to cache (by recipient and donor typing, serving either direction), or 0 to disable
+     */
+    private long matchResultCacheSize = 100000L;
+
     /** jdbi data source factory, set by dropwizard
 	 */
 	@Valid
@@ -366,5 +427,170 @@ public class EpitopeServiceConfiguration extends Configuration {
 	public boolean isResolveCodes() {
 		return resolveCodes;
 	}
-    
+
+    @JobDirectory
+    @JsonProperty
+    public String getJobDirectory() {
+        return jobDirectory;
+    }
+
+    @JsonProperty
+    public void setJobDirectory(String jobDirectory) {
+        this.jobDirectory = jobDirectory;
+    }
+
+    @JobRetentionMillis
+    @JsonProperty
+    public long getJobRetentionMillis() {
+        return jobRetentionMillis;
+    }
+
+    @JsonProperty
+    public void setJobRetentionMillis(long jobRetentionMillis) {
+        this.jobRetentionMillis = jobRetentionMillis;
+    }
+
+    @JobWorkerThreads
+    @JsonProperty
+    public int getJobWorkerThreads() {
+        return jobWorkerThreads;
+    }
+
+    @JsonProperty
+    public void setJobWorkerThreads(int jobWorkerThreads) {
+        this.jobWorkerThreads = jobWorkerThreads;
+    }
+
+    @JobQueueSize
+    @JsonProperty
+    public int getJobQueueSize() {
+        return jobQueueSize;
+    }
+
+    @JsonProperty
+    public void setJobQueueSize(int jobQueueSize) {
+        this.jobQueueSize = jobQueueSize;
+    }
+
+    @ComputeThreads
+    @JsonProperty
+    public int getComputeThreads() {
+        return computeThreads;
+    }
+
+    @JsonProperty
+    public void setComputeThreads(int computeThreads) {
+        this.computeThreads = computeThreads;
+    }
+
+    @ComputeQueueSize
+    @JsonProperty
+    public int getComputeQueueSize() {
+        return computeQueueSize;
+    }
+
+    @JsonProperty
+    public void setComputeQueueSize(int computeQueueSize) {
+        this.computeQueueSize = computeQueueSize;
+    }
+
+    @MatchBulkheadSize
+    @JsonProperty
+    public int getMatchBulkheadSize() {
+        return matchBulkheadSize;
+    }
+
+    @JsonProperty
+    public void setMatchBulkheadSize(int matchBulkheadSize) {
+        this.matchBulkheadSize = matchBulkheadSize;
+    }
+
+    @RetryAfterSeconds
+    @JsonProperty
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @JsonProperty
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @MatchComplexityBudget
+    @JsonProperty
+    public long getMatchComplexityBudget() {
+        return matchComplexityBudget;
+    }
+
+    @JsonProperty
+    public void setMatchComplexityBudget(long matchComplexityBudget) {
+        this.matchComplexityBudget = matchComplexityBudget;
+    }
+
+    @MatchDeadlineMillis
+    @JsonProperty
+    public long getMatchDeadlineMillis() {
+        return matchDeadlineMillis;
+    }
+
+    @JsonProperty
+    public void setMatchDeadlineMillis(long matchDeadlineMillis) {
+        this.matchDeadlineMillis = matchDeadlineMillis;
+    }
+
+    @MatchLimitMode
+    @JsonProperty
+    public LimitMode getMatchLimitMode() {
+        return matchLimitMode;
+    }
+
+    @JsonProperty
+    public void setMatchLimitMode(LimitMode matchLimitMode) {
+        this.matchLimitMode = matchLimitMode;
+    }
+
+    @MatchPruneThreshold
+    @JsonProperty
+    public double getMatchPruneThreshold() {
+        return matchPruneThreshold;
+    }
+
+    @JsonProperty
+    public void setMatchPruneThreshold(double matchPruneThreshold) {
+        this.matchPruneThreshold = matchPruneThreshold;
+    }
+
+    @SlowRequestMillis
+    @JsonProperty
+    public long getSlowRequestMillis() {
+        return slowRequestMillis;
+    }
+
+    @JsonProperty
+    public void setSlowRequestMillis(long slowRequestMillis) {
+        this.slowRequestMillis = slowRequestMillis;
+    }
+
+    @TraceSampleRate
+    @JsonProperty
+    public double getTraceSampleRate() {
+        return traceSampleRate;
+    }
+
+    @JsonProperty
+    public void setTraceSampleRate(double traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+    }
+
+    @MatchResultCacheSize
+    @JsonProperty
+    public long getMatchResultCacheSize() {
+        return matchResultCacheSize;
+    }
+
+    @JsonProperty
+    public void setMatchResultCacheSize(long matchResultCacheSize) {
+        this.matchResultCacheSize = matchResultCacheSize;
+    }
+
 }
@@ -38,6 +38,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
 
 import org.nmdp.gl.Allele;
 import org.nmdp.gl.client.GlClient;
@@ -138,6 +139,28 @@ public class AlleleResource {
 		return getAlleleView(allele, race);
 	}
 
+	@GET
+    @Path("prefix/{prefix}")
+	@ApiOperation(value="Returns the alleles under an allele prefix (e.g. HLA-DPB1*04:01) with their associated immunogenicity groups",
+			response = AlleleView.class,
+		    responseContainer = "List")
+	public List<AlleleView> getAllelesForPrefix(
+			@PathParam("prefix") 
+			@ApiParam("Allele, or leading fields of an allele")
+			String prefix,
+            @QueryParam("race") 
+            @ApiParam("Race code for which to determine allele frequencies")
+            DetailRace race) 
+	{
+		List<Allele> alleles;
+		try {
+			alleles = epitopeService.getAllelesForPrefix(prefix);
+		} catch (IllegalArgumentException e) {
+			throw new EpitopeServiceException(Status.BAD_REQUEST.getStatusCode(), e.getMessage(), e);
+		}
+		return alleles.stream().map(a -> getAlleleView(a, race)).collect(Collectors.toList());
+	}
+
 	private AlleleView getAlleleView(String glString, Integer group, DetailRace race, String error) {
         Double frequency = (null == race) ? null : freqService.getFrequency(race, glString);
         if (null != frequency) frequency = round(frequency);
@@ -0,0 +1,140 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.ws.rs.container.AsyncResponse;
+
+import org.nmdp.service.epitope.guice.ConfigurationBindings.ComputeQueueSize;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.ComputeThreads;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchBulkheadSize;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.RetryAfterSeconds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Bounded executor for expensive requests, which are suspended by the resource and resumed from a 
+ * compute thread, leaving the container threads free for cheap requests.  Requests are submitted to
+ * a named bulkhead that limits the number of its requests running or waiting, so that one busy endpoint
+ * cannot occupy the whole queue.  Only match requests (MATCH_BULKHEAD) are computed here at present;
+ * match jobs run on the workers of MatchJobManager, bounded by its own queue, and endpoints computed
+ * here later should add a bulkhead of their own (see addBulkhead).  Requests that cannot be accepted
+ * fail with 503 and Retry-After.
+ */
+@Singleton
+public class ComputeExecutor {
+
+	/**
+	 * bulkhead for match requests
+	 */
+	public static final String MATCH_BULKHEAD = "matches";
+
+	Logger logger = LoggerFactory.getLogger(getClass());
+	private final ThreadPoolExecutor executor;
+	private final int retryAfterSeconds;
+	private final Map<String, Semaphore> bulkheadMap = new ConcurrentHashMap<>();
+
+	@Inject
+	public ComputeExecutor(
+			@ComputeThreads int threads,
+			@ComputeQueueSize int queueSize,
+			@RetryAfterSeconds int retryAfterSeconds,
+			@MatchBulkheadSize int matchBulkheadSize)
+	{
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, MILLISECONDS, 
+				new ArrayBlockingQueue<>(queueSize), r -> {
+					Thread t = new Thread(r, "ComputeThread-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.retryAfterSeconds = retryAfterSeconds;
+		addBulkhead(MATCH_BULKHEAD, matchBulkheadSize);
+	}
+
+	/**
+	 * define a bulkhead, limiting the requests for an endpoint that may be running or waiting at once
+	 * @param name name of the bulkhead (typically the endpoint)
+	 * @param size maximum number of requests running or waiting
+	 */
+	public void addBulkhead(String name, int size) {
+		bulkheadMap.put(name, new Semaphore(size));
+	}
+
+	/**
+	 * compute the result of a suspended request on a compute thread and resume the response with 
+	 * it (or with the exception thrown while computing it).  If the bulkhead or the compute queue 
+	 * is full, the response is resumed immediately with a ServiceUnavailableException.
+	 * @param bulkhead name of the bulkhead to which the request belongs
+	 * @param response the suspended response
+	 * @param supplier computes the response entity
+	 */
+	public void submit(String bulkhead, AsyncResponse response, Supplier<?> supplier) {
+		Semaphore permits = bulkheadMap.get(bulkhead);
+		if (null == permits) {
+			throw new IllegalArgumentException("unknown bulkhead: " + bulkhead);
+		}
+		if (!permits.tryAcquire()) {
+			response.resume(new ServiceUnavailableException("too many concurrent " + bulkhead + " requests, try again later", retryAfterSeconds));
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					if (response.isDone()) return; // cancelled or timed out while waiting 
+					response.resume(supplier.get());
+				} catch (Throwable t) {
+					response.resume(t);
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			logger.warn("compute queue full, rejecting " + bulkhead + " request");
+			response.resume(new ServiceUnavailableException("server is busy, try again later", retryAfterSeconds));
+		}
+	}
+
+	/**
+	 * stop compute threads, abandoning waiting requests
+	 */
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+}
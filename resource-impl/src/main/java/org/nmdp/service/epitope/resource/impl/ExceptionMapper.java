@@ -23,7 +23,9 @@
 
 package org.nmdp.service.epitope.resource.impl;
 
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -33,9 +35,13 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.nmdp.service.epitope.resource.impl.mime.MIMEParse;
+import org.nmdp.service.epitope.service.MatchLimitException;
+import org.nmdp.service.epitope.service.MatchLimitException.Reason;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -143,7 +149,12 @@ public class ExceptionMapper implements javax.ws.rs.ext.ExceptionMapper<RuntimeE
 	 */
 	@Override
 	public Response toResponse(RuntimeException exception) {
-		logger.error("handling exception", exception);
+		if (exception instanceof ServiceUnavailableException) {
+			// expected under load, don't log stack traces
+			logger.warn("rejected request: " + exception.getMessage());
+		} else {
+			logger.error("handling exception", exception);
+		}
 		logger.debug("accepted response types: " + request.getHeader("Accept"));
 		String matchedType = MIMEParse.bestMatch(entityBuilderMap.keySet(), request.getHeader("Accept"));
 		if (null == matchedType || matchedType.equals("")) {
@@ -154,12 +165,17 @@ public class ExceptionMapper implements javax.ws.rs.ext.ExceptionMapper<RuntimeE
 		int code = INTERNAL_SERVER_ERROR.getStatusCode();
 		if (exception instanceof EpitopeServiceException) {
 			code = ((EpitopeServiceException)exception).getCode();
+		} else if (exception instanceof MatchLimitException) {
+			code = (((MatchLimitException)exception).getReason() == Reason.COMPLEXITY) 
+					? BAD_REQUEST.getStatusCode() : SERVICE_UNAVAILABLE.getStatusCode();
 		}
 		String message = exception.getMessage();
-		Response response = Response.status(code)
+		ResponseBuilder builder = Response.status(code)
 				.type(matchedType)
-				.entity(getEntity(matchedType, code, message, exception))
-				.build();
-		return response;
+				.entity(getEntity(matchedType, code, message, exception));
+		if (exception instanceof ServiceUnavailableException) {
+			builder.header(HttpHeaders.RETRY_AFTER, ((ServiceUnavailableException)exception).getRetryAfterSeconds());
+		}
+		return builder.build();
 	}
 }
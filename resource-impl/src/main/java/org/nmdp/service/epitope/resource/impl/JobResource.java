@@ -0,0 +1,144 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import java.net.URI;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.nmdp.service.epitope.resource.JobView;
+import org.nmdp.service.epitope.resource.MatchRequest;
+import org.nmdp.service.epitope.resource.MatchResponse;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Path("jobs/")
+@Produces(MediaType.APPLICATION_JSON)
+@Api(value="Jobs", description="Runs large batches of DPB1 match requests asynchronously.")
+public class JobResource {
+
+	MatchJobManager jobManager;
+
+	@Inject
+	public JobResource(MatchJobManager jobManager) {
+		this.jobManager = jobManager;
+	}
+
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@ApiOperation(
+			value = "Queues a batch of match requests, returning the job status.",
+			notes = "Poll the job for status, and fetch results from the results resource of the job.",
+			response = JobView.class)
+	@ApiImplicitParam(paramType="body", dataType="org.nmdp.service.epitope.resource.MatchRequest", value="list of match requests")
+	public Response submitJob(
+			@ApiParam(value="List of match requests for which to create match results") // needed for description (ignored if placed above)
+			List<MatchRequest> matchRequestList)
+	{
+		JobView job = jobManager.submit(matchRequestList);
+		return Response.status(Status.ACCEPTED).location(URI.create("jobs/" + job.getId())).entity(job).build();
+	}
+
+	@GET
+	@ApiOperation(value = "Returns the status of all retained jobs", response = JobView.class, responseContainer = "List")
+	public List<JobView> getJobs() {
+		return jobManager.getJobs();
+	}
+
+	@GET
+	@Path("{id}")
+	@ApiOperation(value = "Returns the status of a job", response = JobView.class)
+	public JobView getJob(
+			@PathParam("id")
+			@ApiParam("Job identifier")
+			String id)
+	{
+		return jobManager.getJob(id);
+	}
+
+	@GET
+	@Path("{id}/results")
+	@ApiOperation(
+			value = "Returns match results of a job, in the order of the submitted requests.", 
+			notes = "If limit is specified, a page of the results available so far is returned, otherwise all results of a completed job are returned.",
+			response = MatchResponse.class,
+			responseContainer = "List")
+	public Response getResults(
+			@PathParam("id")
+			@ApiParam("Job identifier")
+			String id,
+			@QueryParam("offset")
+			@ApiParam("Index of the first result to return (default 0)")
+			Integer offset,
+			@QueryParam("limit")
+			@ApiParam("Maximum number of results to return")
+			Integer limit)
+	{
+		int o = (null == offset) ? 0 : offset;
+		if (o < 0 || (null != limit && limit < 0)) {
+			throw new EpitopeServiceException(Status.BAD_REQUEST.getStatusCode(), "offset and limit must not be negative");
+		}
+		if (null != limit) {
+			return Response.ok(jobManager.getResults(id, o, limit)).build();
+		}
+		if (o > 0) {
+			return Response.ok(jobManager.getResults(id, o, Integer.MAX_VALUE)).build();
+		}
+		// fail fast (before the response is committed) if the job is unknown or not complete
+		JobView job = jobManager.getJob(id);
+		if (job.getStatus() != JobView.Status.COMPLETED) {
+			throw new EpitopeServiceException(Status.CONFLICT.getStatusCode(), "match job is not complete: " + id + " (" + job.getStatus() + ")");
+		}
+		StreamingOutput output = os -> jobManager.writeResults(id, os);
+		return Response.ok(output).build();
+	}
+
+	@DELETE
+	@Path("{id}")
+	@ApiOperation(value = "Cancels a job (if unfinished) and discards its results")
+	public void deleteJob(
+			@PathParam("id")
+			@ApiParam("Job identifier")
+			String id)
+	{
+		jobManager.remove(id);
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nmdp.service.epitope.resource.JobView;
+import org.nmdp.service.epitope.resource.JobView.Status;
+import org.nmdp.service.epitope.resource.MatchRequest;
+
+/**
+ * State of a single asynchronous batch of match requests.  Results are spilled to the result file 
+ * as they are computed, so that they may be fetched any number of times without recomputation.
+ */
+class MatchJob {
+
+	private final String id;
+	private final File resultFile;
+	private final int requestCount;
+	private volatile List<MatchRequest> requestList;
+	private volatile Status status = Status.QUEUED;
+	private final AtomicInteger processedCount = new AtomicInteger();
+	private final AtomicInteger errorCount = new AtomicInteger();
+	private volatile int availableCount = 0;
+	private final long submitted;
+	private volatile Long started;
+	private volatile Long finished;
+	private volatile String message;
+	private volatile Future<?> future;
+
+	MatchJob(String id, File resultFile, List<MatchRequest> requestList) {
+		this.id = id;
+		this.resultFile = resultFile;
+		this.requestList = requestList;
+		this.requestCount = requestList.size();
+		this.submitted = System.currentTimeMillis();
+	}
+
+	String getId() {
+		return id;
+	}
+
+	File getResultFile() {
+		return resultFile;
+	}
+
+	List<MatchRequest> getRequestList() {
+		return requestList;
+	}
+
+	Status getStatus() {
+		return status;
+	}
+
+	int getAvailableCount() {
+		return availableCount;
+	}
+
+	Long getFinished() {
+		return finished;
+	}
+
+	boolean isFinished() {
+		return null != finished;
+	}
+
+	void setFuture(Future<?> future) {
+		this.future = future;
+	}
+
+	/**
+	 * @return false if the job was cancelled before starting
+	 */
+	synchronized boolean start() {
+		if (isFinished()) return false;
+		started = System.currentTimeMillis();
+		status = Status.RUNNING;
+		return true;
+	}
+
+	void processed(boolean error) {
+		processedCount.incrementAndGet();
+		if (error) errorCount.incrementAndGet();
+	}
+
+	/**
+	 * @param availableCount number of results flushed to the result file
+	 */
+	void available(int availableCount) {
+		this.availableCount = availableCount;
+	}
+
+	void complete() {
+		finish(Status.COMPLETED, null);
+	}
+
+	void fail(String message) {
+		finish(Status.FAILED, message);
+	}
+
+	void cancel(String message) {
+		Future<?> f = future;
+		if (null != f) f.cancel(true);
+		if (!isFinished()) finish(Status.CANCELLED, message);
+	}
+
+	private synchronized void finish(Status status, String message) {
+		if (isFinished()) return;
+		this.status = status;
+		this.message = message;
+		// release the requests, results are on disk
+		this.requestList = null;
+		this.finished = System.currentTimeMillis();
+	}
+
+	JobView toView(long retentionMillis) {
+		Long f = finished;
+		return new JobView(id, status, requestCount, processedCount.get(), errorCount.get(), availableCount,
+				submitted, started, f, (null == f) ? null : f + retentionMillis, message);
+	}
+
+}
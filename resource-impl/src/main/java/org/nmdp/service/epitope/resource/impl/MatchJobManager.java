@@ -0,0 +1,328 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nmdp.service.epitope.domain.MatchResult;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.JobDirectory;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.JobQueueSize;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.JobRetentionMillis;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.JobWorkerThreads;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.RetryAfterSeconds;
+import org.nmdp.service.epitope.resource.JobView;
+import org.nmdp.service.epitope.resource.MatchRequest;
+import org.nmdp.service.epitope.resource.MatchResponse;
+import org.nmdp.service.epitope.service.MatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Runs batches of match requests on a bounded pool of workers, independent of the requesting client.  
+ * Results are written to the job directory as one JSON document per line, and are retained for the 
+ * configured period after the job finishes.
+ */
+@Singleton
+public class MatchJobManager {
+
+	static final int FLUSH_INTERVAL = 1000;
+
+	Logger logger = LoggerFactory.getLogger(getClass());
+	private final MatchService matchService;
+	private final File jobDirectory;
+	private final long retentionMillis;
+	private final int retryAfterSeconds;
+	private final ThreadPoolExecutor workers;
+	private final ScheduledExecutorService reaper;
+	private final Map<String, MatchJob> jobMap = new ConcurrentHashMap<>();
+	private final ObjectMapper mapper = new ObjectMapper()
+			.setSerializationInclusion(Include.NON_NULL)
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	@Inject
+	public MatchJobManager(
+			MatchService matchService,
+			@JobDirectory String jobDirectory,
+			@JobRetentionMillis long retentionMillis,
+			@JobWorkerThreads int workerThreads,
+			@JobQueueSize int queueSize,
+			@RetryAfterSeconds int retryAfterSeconds)
+	{
+		this.matchService = matchService;
+		this.jobDirectory = new File(jobDirectory);
+		this.retentionMillis = retentionMillis;
+		this.retryAfterSeconds = retryAfterSeconds;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), r -> {
+					Thread t = new Thread(r, "MatchJobThread-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "MatchJobReaperThread");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * prepare the job directory, removing the results of jobs of a previous run (whose state is not 
+	 * retained, so their results could be neither fetched nor expired), and schedule removal of expired jobs
+	 */
+	public void start() {
+		if (!jobDirectory.isDirectory() && !jobDirectory.mkdirs()) {
+			throw new IllegalStateException("failed to create job directory: " + jobDirectory);
+		}
+		removeOrphanedResults();
+		long period = Math.max(1000L, Math.min(retentionMillis, 60 * 1000L));
+		reaper.scheduleWithFixedDelay(this::removeExpiredJobs, period, period, MILLISECONDS);
+	}
+
+	/**
+	 * stop workers, unfinished jobs are cancelled
+	 */
+	public void stop() {
+		reaper.shutdownNow();
+		workers.shutdownNow();
+		jobMap.values().forEach(job -> job.cancel("service stopped"));
+	}
+
+	/**
+	 * submit a batch of match requests
+	 * @param requestList the match requests
+	 * @return the status of the newly queued job
+	 */
+	public JobView submit(List<MatchRequest> requestList) {
+		String id = UUID.randomUUID().toString();
+		MatchJob job = new MatchJob(id, new File(jobDirectory, id + ".json"), new ArrayList<>(requestList));
+		jobMap.put(id, job);
+		try {
+			job.setFuture(workers.submit(() -> run(job)));
+		} catch (RejectedExecutionException e) {
+			jobMap.remove(id);
+			throw new ServiceUnavailableException("match job queue is full, try again later", retryAfterSeconds);
+		}
+		logger.info("queued match job " + id + " (" + requestList.size() + " requests)");
+		return job.toView(retentionMillis);
+	}
+
+	/**
+	 * @param id job identifier
+	 * @return current status of the job
+	 */
+	public JobView getJob(String id) {
+		return getMatchJob(id).toView(retentionMillis);
+	}
+
+	/**
+	 * @return current status of all retained jobs
+	 */
+	public List<JobView> getJobs() {
+		List<JobView> list = new ArrayList<>();
+		jobMap.values().forEach(job -> list.add(job.toView(retentionMillis)));
+		return list;
+	}
+
+	/**
+	 * cancel a job (if unfinished) and remove it along with its results
+	 * @param id job identifier
+	 */
+	public void remove(String id) {
+		MatchJob job = getMatchJob(id);
+		job.cancel("cancelled by request");
+		jobMap.remove(id);
+		deleteResults(job);
+	}
+
+	/**
+	 * read a page of results, results may be read while the job is running.
+	 * @param id job identifier
+	 * @param offset index of the first result to return
+	 * @param limit maximum number of results to return
+	 * @return list of match responses in the order the requests were submitted
+	 */
+	public List<MatchResponse> getResults(String id, int offset, int limit) {
+		MatchJob job = getMatchJob(id);
+		int end = (int)Math.min((long)offset + limit, job.getAvailableCount());
+		List<MatchResponse> list = new ArrayList<>();
+		if (offset >= end) return list;
+		try (BufferedReader reader = Files.newBufferedReader(job.getResultFile().toPath(), UTF_8)) {
+			for (int i = 0; i < end; i++) {
+				String line = reader.readLine();
+				if (null == line) break;
+				if (i >= offset) list.add(mapper.readValue(line, MatchResponse.class));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("failed to read results of match job: " + id, e);
+		}
+		return list;
+	}
+
+	/**
+	 * stream all results of a completed job as a JSON array
+	 * @param id job identifier
+	 * @param os stream to write to
+	 */
+	public void writeResults(String id, OutputStream os) throws IOException {
+		MatchJob job = getMatchJob(id);
+		if (job.getStatus() != JobView.Status.COMPLETED) {
+			throw new EpitopeServiceException(CONFLICT.getStatusCode(), "match job is not complete: " + id + " (" + job.getStatus() + ")");
+		}
+		try (BufferedReader reader = Files.newBufferedReader(job.getResultFile().toPath(), UTF_8)) {
+			os.write('[');
+			String line = null;
+			boolean delim = false;
+			while (null != (line = reader.readLine())) {
+				if (delim) os.write(',');
+				delim = true;
+				os.write(line.getBytes(UTF_8));
+			}
+			os.write(']');
+			os.flush();
+		}
+	}
+
+	private MatchJob getMatchJob(String id) {
+		MatchJob job = jobMap.get(id);
+		if (null == job) {
+			throw new EpitopeServiceException(NOT_FOUND.getStatusCode(), "unknown match job: " + id);
+		}
+		return job;
+	}
+
+	void run(MatchJob job) {
+		List<MatchRequest> requestList = job.getRequestList();
+		if (null == requestList || !job.start()) return; // cancelled before starting
+		logger.debug("starting match job " + job.getId());
+		try (BufferedWriter writer = Files.newBufferedWriter(job.getResultFile().toPath(), UTF_8)) {
+			int count = 0;
+			for (MatchRequest request : requestList) {
+				if (Thread.currentThread().isInterrupted()) {
+					job.cancel("interrupted");
+					return;
+				}
+				MatchResponse response;
+				boolean error = false;
+				try {
+					MatchResult matchResult = matchService.getMatch(
+							request.getRecipient(), request.getRecipientRace(), request.getDonor(), request.getDonorRace());
+					response = MatchResource.getMatchResponse(request, matchResult, null);
+				} catch (RuntimeException e) {
+					logger.debug("failed to match request in job " + job.getId(), e);
+					response = MatchResource.getErrorResponse(request, e.getMessage());
+					error = true;
+				}
+				writer.write(mapper.writeValueAsString(response));
+				writer.newLine();
+				job.processed(error);
+				if (0 == ++count % FLUSH_INTERVAL) {
+					writer.flush();
+					job.available(count);
+				}
+			}
+			writer.flush();
+			job.available(count);
+			job.complete();
+			logger.info("finished match job " + job.getId() + " (" + count + " results)");
+		} catch (Exception e) {
+			logger.error("match job failed: " + job.getId(), e);
+			job.fail(e.getMessage());
+		}
+	}
+
+	void removeExpiredJobs() {
+		long now = System.currentTimeMillis();
+		for (MatchJob job : jobMap.values()) {
+			Long finished = job.getFinished();
+			if (null != finished && finished + retentionMillis < now) {
+				logger.debug("removing expired match job " + job.getId());
+				jobMap.remove(job.getId());
+				deleteResults(job);
+			}
+		}
+	}
+
+	void removeOrphanedResults() {
+		File[] files = jobDirectory.listFiles((dir, name) -> isResultFile(name));
+		if (null == files) return;
+		for (File file : files) {
+			logger.info("removing results of match job from a previous run: " + file.getName());
+			try {
+				Files.deleteIfExists(file.toPath());
+			} catch (IOException e) {
+				logger.warn("failed to delete results of match job: " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the file name is that of a job result file (job id, a uuid, with a .json extension)
+	 */
+	static boolean isResultFile(String name) {
+		if (!name.endsWith(".json")) return false;
+		try {
+			String id = name.substring(0, name.length() - ".json".length());
+			return UUID.fromString(id).toString().equals(id);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private void deleteResults(MatchJob job) {
+		try {
+			Files.deleteIfExists(job.getResultFile().toPath());
+		} catch (IOException e) {
+			logger.warn("failed to delete results of match job: " + job.getId(), e);
+		}
+	}
+
+}
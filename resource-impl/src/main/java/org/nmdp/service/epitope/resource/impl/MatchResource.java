@@ -32,10 +32,16 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.nmdp.service.epitope.resource.MatchRequest;
 import org.nmdp.service.epitope.resource.MatchResponse;
+import org.nmdp.service.epitope.service.MatchBatch;
+import org.nmdp.service.epitope.service.MatchCost;
 import org.nmdp.service.epitope.service.MatchService;
 import org.nmdp.service.epitope.trace.Trace;
 
@@ -50,55 +56,152 @@ import io.swagger.annotations.ApiParam;
 @Api(value="Matches", description="Returns DPB1 matches based on recipient and donor genotypes.")
 public class MatchResource {
 
+	static final String COST_HEADER_PREFIX = "X-Epitope-Cost-";
+
 	MatchService matchService;
+	ComputeExecutor computeExecutor;
+	SlowRequestLog slowRequestLog;
+	TraceSampler traceSampler;
 
 	@Inject
-	public MatchResource(MatchService matchService) {
+	public MatchResource(MatchService matchService, ComputeExecutor computeExecutor, SlowRequestLog slowRequestLog, 
+			TraceSampler traceSampler) 
+	{
 		this.matchService = matchService;
+		this.computeExecutor = computeExecutor;
+		this.slowRequestLog = slowRequestLog;
+		this.traceSampler = traceSampler;
 	}
 
 	@POST
 	@Consumes(MediaType.APPLICATION_JSON)
 	@ApiOperation(
 			value = "Returns list of match results corrolated by token (or genotypes, if no token is provided).", 
-			notes = "The reported match grade is the most optimistic outcome possible with a probability greater than 0.01.",
+			notes = "The reported match grade is the most optimistic outcome possible with a probability greater than 0.01."
+					+ "  Responds with 503 (with Retry-After) if too many match requests are in progress."
+					+ "  Matches exceeding the configured complexity budget or deadline either fail (400 or 503),"
+					+ " or report only the match grade, depending on configuration."
+					+ "  If pruning of infrequent alleles is configured, discardedProbability bounds the error of each probability."
+					+ "  The work done for the request is reported in X-Epitope-Cost-* headers (totals over all match requests).",
 			response = MatchResponse.class,
 		    responseContainer = "List")
 	@ApiImplicitParams({
 	    @ApiImplicitParam(paramType="body", dataType="org.nmdp.service.epitope.resource.MatchRequest", value="list of match requests"), // need something to generate items in spec
-	    @ApiImplicitParam(paramType="query", name="trace", value="trace detail", required=false, dataType = "boolean")	
+	    @ApiImplicitParam(paramType="query", name="trace", value="trace detail", required=false, dataType = "boolean"),
+	    @ApiImplicitParam(paramType="query", name="gradeOnly", value="report match grade only", required=false, dataType = "boolean")
 	})
-	public List<MatchResponse> getMatches(
+	public void getMatches(
 			@ApiParam(value="List of match requests for which to create match results") // needed for description (ignored if placed above)
 			List<MatchRequest> matchRequestList,
 	        @ApiParam(value="Optional request for result trace detail", required=false) 
 			@QueryParam("trace") 
-            Boolean traceEnabled) 
+            Boolean traceEnabled,
+	        @ApiParam(value="Optional request for match grade only, omitting probabilities", required=false) 
+			@QueryParam("gradeOnly") 
+            Boolean gradeOnly,
+            @Suspended
+            AsyncResponse asyncResponse) 
 	{
+		computeExecutor.submit(ComputeExecutor.MATCH_BULKHEAD, asyncResponse, 
+				() -> getMatchesResponse(matchRequestList, traceEnabled, gradeOnly));
+	}
+
+	/**
+	 * compute match responses on the calling thread, reporting their total cost in response headers
+	 */
+	Response getMatchesResponse(List<MatchRequest> matchRequestList, Boolean traceEnabled, Boolean gradeOnly) {
+		MatchCost total = new MatchCost();
+		List<MatchResponse> matchResponseList = getMatches(matchRequestList, traceEnabled, gradeOnly, total);
+		return Response.ok(new GenericEntity<List<MatchResponse>>(matchResponseList) {})
+				.header(COST_HEADER_PREFIX + "Alleles", total.getAlleles())
+				.header(COST_HEADER_PREFIX + "Genotypes", total.getGenotypes())
+				.header(COST_HEADER_PREFIX + "Recipient-Pairs", total.getRecipientPairs())
+				.header(COST_HEADER_PREFIX + "Donor-Pairs", total.getDonorPairs())
+				.header(COST_HEADER_PREFIX + "Comparisons", total.getComparisons())
+				.header(COST_HEADER_PREFIX + "Frequency-Lookups", total.getFrequencyLookups())
+				.build();
+	}
+
+	List<MatchResponse> getMatches(List<MatchRequest> matchRequestList, Boolean traceEnabled) {
+		return getMatches(matchRequestList, traceEnabled, false);
+	}
+
+	/**
+	 * compute match responses on the calling thread
+	 */
+	List<MatchResponse> getMatches(List<MatchRequest> matchRequestList, Boolean traceEnabled, Boolean gradeOnly) {
+		return getMatches(matchRequestList, traceEnabled, gradeOnly, new MatchCost());
+	}
+
+	/**
+	 * compute match responses on the calling thread, adding the cost of each to the total (and logging 
+	 * those slower than the slow request threshold).  Requests sampled for tracing (but not requesting
+	 * a trace) log their traces rather than returning them.  The requests are matched as a batch, so that 
+	 * typings repeated across requests are resolved once (see MatchBatch), and the cost of resolving each 
+	 * typing is counted for the first request it appears in.
+	 */
+	List<MatchResponse> getMatches(List<MatchRequest> matchRequestList, Boolean traceEnabled, Boolean gradeOnly, MatchCost total) {
+		boolean g = Boolean.TRUE.equals(gradeOnly);
+		boolean traced = Boolean.TRUE.equals(traceEnabled);
+		boolean sampled = !traced && traceSampler.sample();
 	    List<MatchResponse> matchResultList = new ArrayList<>();
-	    if (null != traceEnabled && traceEnabled == Boolean.TRUE) {
-	        Trace.enable();
-	    }
+	    Trace t = (traced || sampled) ? Trace.enable() : null;
+	    MatchBatch.start();
 	    try {
     		for (MatchRequest request : matchRequestList) {
-    			org.nmdp.service.epitope.domain.MatchResult matchResult = matchService.getMatch(request.getRecipient(), request.getRecipientRace(), request.getDonor(), request.getDonorRace());
-    			List<String> trace = Trace.getTrace();
-    			Trace.reset();
-    			if (request.getToken() == null || request.getToken().equals("")) {
-    				matchResultList.add(new MatchResponse(
-    						request.getRecipient(), 
-    						request.getRecipientRace(),
-    						request.getDonor(), 
-    						request.getDonorRace(),
-    						matchResult,
-    						trace));
-    			} else {
-    				matchResultList.add(new MatchResponse(request.getToken(), matchResult, trace));
+    			MatchCost cost = MatchCost.start();
+    			long start = System.nanoTime();
+    			org.nmdp.service.epitope.domain.MatchResult matchResult = g
+    					? matchService.getMatchGrade(request.getRecipient(), request.getRecipientRace(), request.getDonor(), request.getDonorRace())
+    					: matchService.getMatch(request.getRecipient(), request.getRecipientRace(), request.getDonor(), request.getDonorRace());
+    			slowRequestLog.log(request, System.nanoTime() - start, cost);
+    			total.add(cost);
+    			List<String> trace = (null == t) ? null : t.next();
+    			if (sampled) {
+    				traceSampler.log(request, trace);
+    				trace = null;
     			}
+    			matchResultList.add(getMatchResponse(request, matchResult, trace));
     		}
 	    } finally {
 	        Trace.disable();
+	        MatchCost.stop();
+	        MatchBatch.stop();
 	    }
 		return matchResultList;
 	}
+
+	/**
+	 * build the response for a request, echoing the request genotypes if no token was provided
+	 */
+	static MatchResponse getMatchResponse(MatchRequest request, org.nmdp.service.epitope.domain.MatchResult matchResult, List<String> trace) {
+		if (request.getToken() == null || request.getToken().equals("")) {
+			return new MatchResponse(
+					request.getRecipient(), 
+					request.getRecipientRace(),
+					request.getDonor(), 
+					request.getDonorRace(),
+					matchResult,
+					trace);
+		} else {
+			return new MatchResponse(request.getToken(), matchResult, trace);
+		}
+	}
+
+	/**
+	 * build the response for a request that failed to match
+	 */
+	static MatchResponse getErrorResponse(MatchRequest request, String error) {
+		if (request.getToken() == null || request.getToken().equals("")) {
+			return new MatchResponse(
+					request.getRecipient(), 
+					request.getRecipientRace(),
+					request.getDonor(), 
+					request.getDonorRace(),
+					null,
+					error);
+		} else {
+			return new MatchResponse(null, null, null, null, request.getToken(), error);
+		}
+	}
 }
@@ -32,6 +32,9 @@ public class ResourceModule extends AbstractModule {
 		bind(AlleleResource.class);
 		bind(GroupResource.class);
 		bind(MatchResource.class);
+		bind(JobResource.class);
+		bind(ComputeExecutor.class);
+		bind(MatchJobManager.class);
 	}
 
 }
@@ -0,0 +1,53 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Exception indicating that a request was rejected due to load, mapped to 503 with a Retry-After header 
+ */
+public class ServiceUnavailableException extends EpitopeServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	final int retryAfterSeconds;
+
+	/**
+	 * construct exception with the specified message and retry delay
+	 * @param message message of the exception
+	 * @param retryAfterSeconds number of seconds the client should wait before retrying
+	 */
+	public ServiceUnavailableException(String message, int retryAfterSeconds) {
+		super(Status.SERVICE_UNAVAILABLE.getStatusCode(), message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * @return number of seconds the client should wait before retrying
+	 */
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.nmdp.service.epitope.guice.ConfigurationBindings.SlowRequestMillis;
+import org.nmdp.service.epitope.resource.MatchRequest;
+import org.nmdp.service.epitope.service.MatchCost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Log of match requests slower than the configured threshold, with their inputs and cost counters.  
+ * Entries are written to the "slow-requests" logger from a background thread, so that slow requests 
+ * are not slowed further by logging; if the backlog is full, entries are dropped.
+ */
+@Singleton
+public class SlowRequestLog {
+
+	static final int QUEUE_SIZE = 1024;
+
+	static Logger logger = LoggerFactory.getLogger("slow-requests");
+	private final long thresholdNanos;
+	private final ThreadPoolExecutor executor;
+
+	@Inject
+	public SlowRequestLog(@SlowRequestMillis long slowRequestMillis) {
+		this.thresholdNanos = MILLISECONDS.toNanos(slowRequestMillis);
+		this.executor = new ThreadPoolExecutor(1, 1, 0L, MILLISECONDS, 
+				new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+					Thread t = new Thread(r, "SlowRequestLogThread");
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	/**
+	 * @return true if a request of the specified duration should be logged
+	 */
+	public boolean isSlow(long nanos) {
+		return thresholdNanos > 0 && nanos >= thresholdNanos;
+	}
+
+	/**
+	 * log the request, if it took longer than the threshold
+	 * @param request the match request
+	 * @param nanos duration of the request
+	 * @param cost work done for the request
+	 */
+	public void log(MatchRequest request, long nanos, MatchCost cost) {
+		if (!isSlow(nanos)) return;
+		executor.execute(() -> logger.warn("slow match (" + NANOSECONDS.toMillis(nanos) + " ms)" 
+				+ ": token=" + request.getToken()
+				+ ", recipient=" + request.getRecipient() 
+				+ ", recipientRace=" + request.getRecipientRace()
+				+ ", donor=" + request.getDonor() 
+				+ ", donorRace=" + request.getDonorRace()
+				+ ", " + cost));
+	}
+
+	/**
+	 * stop the logging thread, dropping entries not yet written
+	 */
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.nmdp.service.epitope.guice.ConfigurationBindings.TraceSampleRate;
+import org.nmdp.service.epitope.resource.MatchRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Selects a sample of match requests to trace, and writes their traces to the "match-traces" logger.  
+ * Traces are rendered on the request thread (whose trace buffer is not safe to read from another thread), 
+ * and written from a background thread; if the backlog is full, they are dropped.
+ */
+@Singleton
+public class TraceSampler {
+
+	static final int QUEUE_SIZE = 256;
+
+	static Logger logger = LoggerFactory.getLogger("match-traces");
+	private final double sampleRate;
+	private final ThreadPoolExecutor executor;
+
+	@Inject
+	public TraceSampler(@TraceSampleRate double sampleRate) {
+		this.sampleRate = sampleRate;
+		this.executor = new ThreadPoolExecutor(1, 1, 0L, MILLISECONDS, 
+				new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+					Thread t = new Thread(r, "TraceSamplerThread");
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	/**
+	 * @return true if the current request should be traced
+	 */
+	public boolean sample() {
+		return sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+	}
+
+	/**
+	 * log the trace of a sampled request
+	 * @param request the match request
+	 * @param trace the trace of the request (rendered as it is read)
+	 */
+	public void log(MatchRequest request, List<String> trace) {
+		List<String> lines = new ArrayList<>(trace);
+		executor.execute(() -> logger.info("sampled match trace: token=" + request.getToken()
+				+ ", recipient=" + request.getRecipient() 
+				+ ", recipientRace=" + request.getRecipientRace()
+				+ ", donor=" + request.getDonor() 
+				+ ", donorRace=" + request.getDonorRace()
+				+ "\n" + String.join("\n", lines)));
+	}
+
+	/**
+	 * stop the logging thread, dropping traces not yet written
+	 */
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+}
@@ -148,4 +148,15 @@ public class AlleleResourceTest {
 		assertThat(test.getGroup(), equalTo(epitopeService.getImmuneGroupForAllele(a)));
 	}
 
+	@Test
+	public void testGetAllelesForPrefix() throws Exception {
+		List<String> test = alleleViewsToStrings(resource.getAllelesForPrefix("09", null));
+		assertThat(test, contains("09:01"));
+	}
+
+	@Test(expected = EpitopeServiceException.class)
+	public void testGetAllelesForPrefix_Invalid() throws Exception {
+		resource.getAllelesForPrefix("09:AB", null);
+	}
+
 }
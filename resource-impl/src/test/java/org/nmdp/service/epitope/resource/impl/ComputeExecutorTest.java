@@ -0,0 +1,99 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComputeExecutorTest {
+
+	@Mock
+	private AsyncResponse response1;
+
+	@Mock
+	private AsyncResponse response2;
+
+	private ComputeExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = new ComputeExecutor(1, 10, 7, 1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.stop();
+	}
+
+	@Test
+	public void testSubmit_Resumed() throws Exception {
+		executor.submit(ComputeExecutor.MATCH_BULKHEAD, response1, () -> "result");
+		verify(response1, timeout(1000)).resume("result");
+	}
+
+	@Test
+	public void testSubmit_ExceptionResumed() throws Exception {
+		RuntimeException e = new RuntimeException("failed");
+		executor.submit(ComputeExecutor.MATCH_BULKHEAD, response1, () -> { throw e; });
+		verify(response1, timeout(1000)).resume(e);
+	}
+
+	@Test
+	public void testSubmit_BulkheadFull() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		executor.submit(ComputeExecutor.MATCH_BULKHEAD, response1, () -> {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "result";
+		});
+		executor.submit(ComputeExecutor.MATCH_BULKHEAD, response2, () -> "rejected");
+		ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+		verify(response2).resume(captor.capture());
+		assertThat(captor.getValue(), instanceOf(ServiceUnavailableException.class));
+		assertThat(((ServiceUnavailableException)captor.getValue()).getCode(), equalTo(503));
+		assertThat(((ServiceUnavailableException)captor.getValue()).getRetryAfterSeconds(), equalTo(7));
+		latch.countDown();
+		verify(response1, timeout(1000)).resume("result");
+	}
+
+}
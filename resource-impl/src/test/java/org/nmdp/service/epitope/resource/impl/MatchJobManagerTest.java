@@ -0,0 +1,168 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource.impl;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.domain.MatchGrade;
+import org.nmdp.service.epitope.domain.MatchResult;
+import org.nmdp.service.epitope.resource.JobView;
+import org.nmdp.service.epitope.resource.JobView.Status;
+import org.nmdp.service.epitope.resource.MatchRequest;
+import org.nmdp.service.epitope.resource.MatchResponse;
+import org.nmdp.service.epitope.service.MatchService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MatchJobManagerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private MatchService matchService;
+
+	private MatchJobManager manager;
+
+	@Before
+	public void setUp() throws Exception {
+		manager = new MatchJobManager(matchService, folder.getRoot().getPath(), 60000L, 1, 10, 5);
+		manager.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		manager.stop();
+	}
+
+	private JobView awaitJob(String id) throws Exception {
+		for (int i = 0; i < 500; i++) {
+			JobView job = manager.getJob(id);
+			if (null != job.getFinished()) return job;
+			Thread.sleep(10);
+		}
+		fail("job did not finish: " + id);
+		return null;
+	}
+
+	@Test
+	public void testSubmit_ResultsInRequestOrder() throws Exception {
+		MatchResult result = new MatchResult(0.1, 0.2, 0.3, 0.4, 0.0, MatchGrade.PERMISSIVE);
+		when(matchService.getMatch(anyString(), any(DetailRace.class), anyString(), any(DetailRace.class))).thenReturn(result);
+		List<MatchRequest> requests = Arrays.asList(
+				new MatchRequest("01:01+02:01", null, "03:01+04:01", null, "t1"),
+				new MatchRequest("01:01+02:01", null, "03:01+04:01", null, "t2"),
+				new MatchRequest("01:01+02:01", null, "03:01+04:01", null, "t3"));
+		JobView submitted = manager.submit(requests);
+		assertThat(submitted.getRequestCount(), equalTo(3));
+		JobView job = awaitJob(submitted.getId());
+		assertThat(job.getStatus(), equalTo(Status.COMPLETED));
+		assertThat(job.getProcessedCount(), equalTo(3));
+		assertThat(job.getAvailableCount(), equalTo(3));
+		List<MatchResponse> page = manager.getResults(job.getId(), 1, 5);
+		assertThat(page.size(), equalTo(2));
+		assertThat(page.get(0).getToken(), equalTo("t2"));
+		assertThat(page.get(1).getToken(), equalTo("t3"));
+		assertThat(page.get(1).getMatchGrade(), equalTo(MatchGrade.PERMISSIVE));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		manager.writeResults(job.getId(), os);
+		assertThat(os.toString("UTF-8").startsWith("[{"), equalTo(true));
+	}
+
+	@Test
+	public void testSubmit_FailedRequestRecorded() throws Exception {
+		MatchResult result = new MatchResult(1.0, 0.0, 0.0, 0.0, 0.0, MatchGrade.MATCH);
+		when(matchService.getMatch(eq("good"), any(DetailRace.class), anyString(), any(DetailRace.class))).thenReturn(result);
+		when(matchService.getMatch(eq("bad"), any(DetailRace.class), anyString(), any(DetailRace.class))).thenThrow(new RuntimeException("failed"));
+		JobView job = awaitJob(manager.submit(Arrays.asList(
+				new MatchRequest("bad", null, "x", null, "t1"),
+				new MatchRequest("good", null, "x", null, "t2"))).getId());
+		assertThat(job.getStatus(), equalTo(Status.COMPLETED));
+		assertThat(job.getErrorCount(), equalTo(1));
+		List<MatchResponse> results = manager.getResults(job.getId(), 0, 10);
+		assertThat(results.get(0).getError(), equalTo("failed"));
+		assertThat(results.get(0).getMatchGrade(), nullValue());
+		assertThat(results.get(1).getError(), nullValue());
+		assertThat(results.get(1).getMatchGrade(), equalTo(MatchGrade.MATCH));
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		JobView job = awaitJob(manager.submit(Arrays.asList(new MatchRequest("a", null, "b", null, null))).getId());
+		manager.remove(job.getId());
+		try {
+			manager.getJob(job.getId());
+			fail("expected exception");
+		} catch (EpitopeServiceException e) {
+			assertThat(e.code, equalTo(404));
+		}
+		assertThat(folder.getRoot().list().length, equalTo(0));
+	}
+
+	@Test
+	public void testStart_OrphanedResultsRemoved() throws Exception {
+		File orphan = folder.newFile(UUID.randomUUID() + ".json");
+		File other = folder.newFile("other.json");
+		MatchJobManager restarted = new MatchJobManager(matchService, folder.getRoot().getPath(), 60000L, 1, 10, 5);
+		restarted.start();
+		try {
+			assertThat(orphan.exists(), equalTo(false));
+			assertThat(other.exists(), equalTo(true));
+		} finally {
+			restarted.stop();
+		}
+	}
+
+	@Test
+	public void testRun_CancelledBeforeStart() throws Exception {
+		MatchJob job = new MatchJob("1", new File(folder.getRoot(), "1.json"), 
+				Collections.singletonList(new MatchRequest("a", null, "b", null, null)));
+		job.cancel("cancelled by request");
+		assertThat(job.start(), equalTo(false));
+		assertThat(job.getStatus(), equalTo(Status.CANCELLED));
+	}
+
+}
@@ -23,11 +23,18 @@
 
 package org.nmdp.service.epitope.resource.impl;
 
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.aGenotype;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.aGenotypeList;
@@ -39,9 +46,12 @@ import static org.nmdp.service.epitope.EpitopeServiceTestData.group3Alleles;
 import static org.nmdp.service.epitope.domain.DetailRace.AFA;
 import static org.nmdp.service.epitope.domain.DetailRace.CAU;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.ws.rs.core.Response;
+
 import org.nmdp.gl.Genotype;
 import org.junit.After;
 import org.junit.Before;
@@ -55,6 +65,8 @@ import org.nmdp.service.epitope.domain.MatchGrade;
 import org.nmdp.service.epitope.domain.MatchResult;
 import org.nmdp.service.epitope.resource.MatchRequest;
 import org.nmdp.service.epitope.resource.MatchResponse;
+import org.nmdp.service.epitope.service.MatchBatch;
+import org.nmdp.service.epitope.service.MatchCost;
 import org.nmdp.service.epitope.service.MatchService;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -63,6 +75,12 @@ public class MatchResourceTest {
 	@Mock
 	private MatchService matchService;
 
+	@Mock
+	private SlowRequestLog slowRequestLog;
+
+	@Mock
+	private TraceSampler traceSampler;
+
 	@InjectMocks
 	private MatchResource resource;
 
@@ -128,4 +146,59 @@ public class MatchResourceTest {
 		assertThat(test.get(0).getMatchGrade(), nullValue());
 	}
 
+	@Test
+	public void testGetMatchesResponse_CostHeaders() throws Exception {
+		MatchRequest request = new MatchRequest("test", null, "test", null, "testToken");
+		MatchResult result = new MatchResult(null, null, null, null, null, MatchGrade.GVH_NONPERMISSIVE);
+		when(matchService.getMatch(anyString(), any(DetailRace.class), anyString(), any(DetailRace.class))).thenReturn(result);
+		Response test = resource.getMatchesResponse(Arrays.asList(request), false, false);
+		assertThat(test.getHeaderString("X-Epitope-Cost-Alleles"), equalTo("0"));
+		assertThat(test.getHeaderString("X-Epitope-Cost-Genotypes"), equalTo("0"));
+		assertThat(test.getHeaderString("X-Epitope-Cost-Recipient-Pairs"), equalTo("0"));
+		assertThat(test.getHeaderString("X-Epitope-Cost-Donor-Pairs"), equalTo("0"));
+		assertThat(test.getHeaderString("X-Epitope-Cost-Comparisons"), equalTo("0"));
+		assertThat(test.getHeaderString("X-Epitope-Cost-Frequency-Lookups"), equalTo("0"));
+		verify(slowRequestLog).log(eq(request), anyLong(), any(MatchCost.class));
+	}
+
+	@Test
+	public void testGetMatches_Batch() throws Exception {
+		MatchRequest request = new MatchRequest("test", null, "test", null, "testToken");
+		MatchResult result = new MatchResult(null, null, null, null, null, MatchGrade.GVH_NONPERMISSIVE);
+		List<MatchBatch> batches = new ArrayList<>();
+		when(matchService.getMatch(anyString(), any(DetailRace.class), anyString(), any(DetailRace.class))).then(i -> {
+			batches.add(MatchBatch.current());
+			return result;
+		});
+		resource.getMatches(Arrays.asList(request, request), false);
+		assertThat(batches.size(), equalTo(2));
+		assertThat(batches.get(0), notNullValue());
+		assertThat(batches.get(1), sameInstance(batches.get(0)));
+		assertThat(MatchBatch.current(), nullValue());
+	}
+
+	@Test
+	public void testGetMatches_Trace() throws Exception {
+		MatchRequest request = new MatchRequest("test", null, "test", null, "testToken");
+		MatchResult result = new MatchResult(null, null, null, null, null, MatchGrade.GVH_NONPERMISSIVE);
+		when(matchService.getMatch(anyString(), any(DetailRace.class), anyString(), any(DetailRace.class))).thenReturn(result);
+		List<MatchResponse> test = resource.getMatches(Arrays.asList(request, request), true);
+		assertThat(test.get(0).getTrace(), empty());
+		assertThat(test.get(1).getTrace(), empty());
+		test = resource.getMatches(Arrays.asList(request, request), false);
+		assertThat(test.get(0).getTrace(), nullValue());
+		assertThat(test.get(1).getTrace(), nullValue());
+	}
+
+	@Test
+	public void testGetMatches_TraceSampled() throws Exception {
+		MatchRequest request = new MatchRequest("test", null, "test", null, "testToken");
+		MatchResult result = new MatchResult(null, null, null, null, null, MatchGrade.GVH_NONPERMISSIVE);
+		when(matchService.getMatch(anyString(), any(DetailRace.class), anyString(), any(DetailRace.class))).thenReturn(result);
+		when(traceSampler.sample()).thenReturn(true);
+		List<MatchResponse> test = resource.getMatches(Arrays.asList(request), false);
+		assertThat(test.get(0).getTrace(), nullValue());
+		verify(traceSampler).log(eq(request), anyListOf(String.class));
+	}
+
 }
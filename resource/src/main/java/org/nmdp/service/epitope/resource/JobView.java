@@ -0,0 +1,139 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.resource;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel("Status of an asynchronous batch of match requests")
+public class JobView {
+
+	/**
+	 * Lifecycle states of a match job.
+	 */
+	public enum Status {
+		QUEUED,
+		RUNNING,
+		COMPLETED,
+		FAILED,
+		CANCELLED
+	}
+
+	private String id;
+	private Status status;
+	private Integer requestCount;
+	private Integer processedCount;
+	private Integer errorCount;
+	private Integer availableCount;
+	private Long submitted;
+	private Long started;
+	private Long finished;
+	private Long expires;
+	private String message;
+
+	@JsonCreator
+	public JobView(
+			final @JsonProperty("id") String id,
+			final @JsonProperty("status") Status status,
+			final @JsonProperty("requestCount") Integer requestCount,
+			final @JsonProperty("processedCount") Integer processedCount,
+			final @JsonProperty("errorCount") Integer errorCount,
+			final @JsonProperty("availableCount") Integer availableCount,
+			final @JsonProperty("submitted") Long submitted,
+			final @JsonProperty("started") Long started,
+			final @JsonProperty("finished") Long finished,
+			final @JsonProperty("expires") Long expires,
+			final @JsonProperty("message") String message)
+	{
+		this.id = id;
+		this.status = status;
+		this.requestCount = requestCount;
+		this.processedCount = processedCount;
+		this.errorCount = errorCount;
+		this.availableCount = availableCount;
+		this.submitted = submitted;
+		this.started = started;
+		this.finished = finished;
+		this.expires = expires;
+		this.message = message;
+	}
+
+	@ApiModelProperty(value="Identifier of the job, used to poll status and fetch results", required=true)
+	public String getId() {
+		return id;
+	}
+
+	@ApiModelProperty(value="Current status of the job", required=true)
+	public Status getStatus() {
+		return status;
+	}
+
+	@ApiModelProperty(value="Number of match requests submitted with the job", required=true)
+	public Integer getRequestCount() {
+		return requestCount;
+	}
+
+	@ApiModelProperty(value="Number of match requests processed so far", required=true)
+	public Integer getProcessedCount() {
+		return processedCount;
+	}
+
+	@ApiModelProperty(value="Number of match requests that could not be matched (see error on each result)", required=true)
+	public Integer getErrorCount() {
+		return errorCount;
+	}
+
+	@ApiModelProperty(value="Number of results that may currently be fetched", required=true)
+	public Integer getAvailableCount() {
+		return availableCount;
+	}
+
+	@ApiModelProperty(value="Time the job was submitted (milliseconds since epoch)", required=true)
+	public Long getSubmitted() {
+		return submitted;
+	}
+
+	@ApiModelProperty(value="Time the job was started (milliseconds since epoch)", required=false)
+	public Long getStarted() {
+		return started;
+	}
+
+	@ApiModelProperty(value="Time the job finished (milliseconds since epoch)", required=false)
+	public Long getFinished() {
+		return finished;
+	}
+
+	@ApiModelProperty(value="Time after which the job and its results are removed (milliseconds since epoch)", required=false)
+	public Long getExpires() {
+		return expires;
+	}
+
+	@ApiModelProperty(value="Reason the job failed or was cancelled", required=false)
+	public String getMessage() {
+		return message;
+	}
+
+}
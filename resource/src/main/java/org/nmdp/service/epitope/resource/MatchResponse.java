@@ -46,6 +46,7 @@ public class MatchResponse {
 	private String token;
 	private MatchResult matchResult;
     private List<String> trace;
+    private String error;
 
 	@JsonCreator
 	public MatchResponse(
@@ -59,7 +60,10 @@ public class MatchResponse {
 			final @JsonProperty("hvgNonPermissiveMismatchProbability") Double hvgNonPermissiveMismatchProbability,
 			final @JsonProperty("gvhNonPermissiveMismatchProbability") Double gvhNonPermissiveMismatchProbability,
 			final @JsonProperty("unknownProbability") Double unknownProbability,
-			final @JsonProperty("matchGrade") MatchGrade matchGrade)
+			final @JsonProperty("matchGrade") MatchGrade matchGrade,
+			final @JsonProperty("pairsEvaluated") Long pairsEvaluated,
+			final @JsonProperty("discardedProbability") Double discardedProbability,
+			final @JsonProperty("error") String error)
 	{
 		this.recipient = recipient;
 		this.recipientRace = recipientRace;
@@ -72,7 +76,10 @@ public class MatchResponse {
 				hvgNonPermissiveMismatchProbability, 
 				gvhNonPermissiveMismatchProbability, 
 				unknownProbability,
-				matchGrade);
+				matchGrade,
+				pairsEvaluated,
+				discardedProbability);
+		this.error = error;
 	}
 
 	public MatchResponse(String recipient,
@@ -96,6 +103,21 @@ public class MatchResponse {
 		this.trace = trace;
 	}
 
+    public MatchResponse(String recipient,
+    		DetailRace recipientRace,
+    		String donor,
+    		DetailRace donorRace,
+    		String token,
+    		String error)
+    {
+		this.recipient = recipient;
+		this.recipientRace = recipientRace;
+		this.donor = donor;
+		this.donorRace = donorRace;
+		this.token = token;
+		this.error = error;
+    }
+
 	@ApiModelProperty(
 			value="Recipient genotype as provided in request, included if token is not provided in request", 
 			required=true)
@@ -135,35 +157,35 @@ public class MatchResponse {
 			value="Probability of match", 
 			required=false)
 	public Double getMatchProbability() {
-		return matchResult.getMatchProbability();
+		return (null == matchResult) ? null : matchResult.getMatchProbability();
 	}
 
 	@ApiModelProperty(
 			value="Probability of permissive mismatch", 
 			required=false)
 	public Double getPermissiveMismatchProbability() {
-		return matchResult.getPermissiveMismatchProbability();
+		return (null == matchResult) ? null : matchResult.getPermissiveMismatchProbability();
 	}
 	
 	@ApiModelProperty(
 			value="Probability of host vs. graft non-permissive mismatch", 
 			required=false)
 	public Double getHvgNonPermissiveMismatchProbability() {
-		return matchResult.getHvgNonPermissiveMismatchProbability();
+		return (null == matchResult) ? null : matchResult.getHvgNonPermissiveMismatchProbability();
 	}
 
 	@ApiModelProperty(
 			value="Probability of graft vs. host non-permissive mismatch", 
 			required=false)
 	public Double getGvhNonPermissiveMismatchProbability() {
-		return matchResult.getGvhNonPermissiveMismatchProbability();
+		return (null == matchResult) ? null : matchResult.getGvhNonPermissiveMismatchProbability();
 	}
 
 	@ApiModelProperty(
 			value="Probability that immunogenicity group for type is unknown", 
 			required=false)
 	public Double getUnknownProbability() {
-		return matchResult.getUnknownProbability();
+		return (null == matchResult) ? null : matchResult.getUnknownProbability();
 	}
 
 	@ApiModelProperty(
@@ -172,12 +194,33 @@ public class MatchResponse {
 					+ " without possibility of MATCH or PERMISSIVE)",
 			required=false)
 	public MatchGrade getMatchGrade() {
-		return matchResult.getMatchGrade();
+		return (null == matchResult) ? null : matchResult.getMatchGrade();
 	}
 	
+	@ApiModelProperty(
+			value="Number of recipient/donor allele pair comparisons evaluated to determine the result",
+			required=false)
+	public Long getPairsEvaluated() {
+		return (null == matchResult) ? null : matchResult.getPairsEvaluated();
+	}
+
+	@ApiModelProperty(
+			value="Probability mass discarded by pruning infrequent alleles (if enabled), which bounds the error"
+					+ " of each reported probability", 
+			required=false)
+	public Double getDiscardedProbability() {
+		return (null == matchResult) ? null : matchResult.getDiscardedProbability();
+	}
+
     @ApiModelProperty(
             value="Trace data", required=false)
 	public List<String> getTrace() {
 	    return trace;
 	}
+
+    @ApiModelProperty(
+            value="Error encountered while matching, present only if the match could not be completed", required=false)
+    public String getError() {
+        return error;
+    }
 }
@@ -27,6 +27,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.nmdp.service.epitope.db.AlleleCodeRow;
 import org.nmdp.service.epitope.db.DbiManager;
+import org.nmdp.service.epitope.jfr.RebuildEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +92,8 @@ public class DbiAlleleCodeResolver implements Function<String, String> {
 	}
 
 	public void buildAlleleCodeMap(Iterator<AlleleCodeRow> alleleCodeIter) {
+		RebuildEvent event = new RebuildEvent();
+		event.begin();
 		try {
 			this.alleleCodeMap = stream(spliteratorUnknownSize(alleleCodeIter, ORDERED), false)
 					.collect(Collectors.groupingBy(
@@ -101,6 +104,11 @@ public class DbiAlleleCodeResolver implements Function<String, String> {
 					.entrySet().stream()
 					.filter(e -> e.getValue().isPresent())
 					.collect(Collectors.toMap(Entry::getKey, e -> e.getValue().get()));
+			if (event.shouldCommit()) {
+				event.map = "alleleCode";
+				event.entries = alleleCodeMap.size();
+				event.commit();
+			}
 		} catch (RuntimeException e) {
 			throw e;
 		} catch (Exception e) {
@@ -137,6 +145,13 @@ public class DbiAlleleCodeResolver implements Function<String, String> {
 
 	@Override
 	public String apply(String alleleCode) {
+		return String.join("/", expand(alleleCode));
+	}
+
+	/**
+	 * @return the alleles of the allele code
+	 */
+	public List<String> expand(String alleleCode) {
 		Matcher matcher = ALLELE_CODE_PAT.matcher(alleleCode);
 		if (!matcher.matches()) {
 			throw new RuntimeException("unrecognized allele code format: " + alleleCode);
@@ -156,7 +171,7 @@ public class DbiAlleleCodeResolver implements Function<String, String> {
 		Stream<String> alleleStream = alleleSet.stream();
 		if (expansion.isGeneric()) alleleStream = alleleStream.map(a -> family + ":" + a);
 		if (null != prefix) alleleStream = alleleStream.map(a -> prefix + a);
-		return alleleStream.collect(Collectors.joining("/"));
+		return alleleStream.collect(Collectors.toList());
 	}
 
 }
@@ -0,0 +1,118 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable dictionary numbering a set of allele names densely from zero, for indexes kept in 
+ * arrays.  Names that pack (see PackedAllele) are numbered first, in packed order, and looked up by 
+ * binary search on their packed form; any others are numbered after them, in name order, and looked
+ * up by name.  Names packing to the same allele (e.g. with and without prefix) share one id, named
+ * by the most fully prefixed of them (see preferred()), regardless of the order they are given in.
+ */
+public final class AlleleDictionary {
+
+	private final long[] packed;
+	private final Map<String, Integer> others;
+	private final String[] names;
+
+	/**
+	 * @param alleles allele names
+	 */
+	public AlleleDictionary(Collection<String> alleles) {
+		Map<Long, String> packedNames = new HashMap<>();
+		TreeSet<String> otherNames = new TreeSet<>();
+		for (String allele : alleles) {
+			long p = PackedAllele.parse(allele);
+			if (p == PackedAllele.NONE) otherNames.add(allele);
+			else packedNames.merge(p, allele, AlleleDictionary::preferred);
+		}
+		packed = packedNames.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+		names = new String[packed.length + otherNames.size()];
+		for (int id = 0; id < packed.length; id++) {
+			names[id] = packedNames.get(packed[id]);
+		}
+		others = new HashMap<>(otherNames.size() * 4 / 3 + 1);
+		int id = packed.length;
+		for (String allele : otherNames) {
+			others.put(allele, id);
+			names[id++] = allele;
+		}
+	}
+
+	/**
+	 * @return the preferred of two names packing to the same allele: the longest (e.g. HLA-DPB1*01:01 over 
+	 * DPB1*01:01 over 01:01), or if of the same length, the first in name order
+	 */
+	static String preferred(String a, String b) {
+		if (a.length() != b.length()) return (a.length() > b.length()) ? a : b;
+		return (a.compareTo(b) <= 0) ? a : b;
+	}
+
+	/**
+	 * @return id of the allele, or -1 if unknown
+	 */
+	public int id(String allele) {
+		long p = PackedAllele.parse(allele);
+		if (p != PackedAllele.NONE) return id(p);
+		Integer id = others.get(allele);
+		return (null == id) ? -1 : id;
+	}
+
+	/**
+	 * @return id of the packed allele, or -1 if unknown
+	 */
+	public int id(long packedAllele) {
+		int id = Arrays.binarySearch(packed, packedAllele);
+		return (id < 0) ? -1 : id;
+	}
+
+	/**
+	 * @return packed allele with the given id, or PackedAllele.NONE if the name doesn't pack
+	 */
+	public long packed(int id) {
+		return (id < packed.length) ? packed[id] : PackedAllele.NONE;
+	}
+
+	/**
+	 * @return name of the allele with the given id, as given to the dictionary
+	 */
+	public String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @return number of alleles
+	 */
+	public int size() {
+		return names.length;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable field-level trie of the packed alleles of an AlleleDictionary, one level per field, for
+ * resolving alleles by longest prefix and listing the alleles under a prefix without scanning the
+ * dictionary.  Each node holds the alleles whose fields end at the node (with and without an 
+ * expression suffix), and its children ordered by field value, so a walk visits alleles in packed
+ * order.  Alleles of the dictionary that don't pack aren't in the trie.
+ */
+public final class AlleleTrie {
+
+	private static final int[] NO_FIELDS = new int[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final long[] NO_KEYS = new long[0];
+
+	private static final class Node {
+		int[] fields = NO_FIELDS;
+		Node[] children = NO_CHILDREN;
+		long[] keys = NO_KEYS;
+		int[] ids = NO_FIELDS;
+
+		Node child(int field) {
+			int i = Arrays.binarySearch(fields, field);
+			return (i < 0) ? null : children[i];
+		}
+
+		Node addChild(int field) {
+			int i = Arrays.binarySearch(fields, field);
+			if (i >= 0) return children[i];
+			i = -i - 1;
+			Node child = new Node();
+			fields = insert(fields, i, field);
+			Node[] c = new Node[children.length + 1];
+			System.arraycopy(children, 0, c, 0, i);
+			System.arraycopy(children, i, c, i + 1, children.length - i);
+			c[i] = child;
+			children = c;
+			return child;
+		}
+
+		void add(long key, int id) {
+			// dictionary ids of packed alleles are in packed order, so keys stay sorted
+			keys = Arrays.copyOf(keys, keys.length + 1);
+			keys[keys.length - 1] = key;
+			ids = insert(ids, ids.length, id);
+		}
+
+		int id(long key) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == key) return ids[i];
+			}
+			return -1;
+		}
+
+		void forEach(IntConsumer action) {
+			for (int id : ids) action.accept(id);
+			for (Node child : children) child.forEach(action);
+		}
+
+		private static int[] insert(int[] a, int i, int value) {
+			int[] b = new int[a.length + 1];
+			System.arraycopy(a, 0, b, 0, i);
+			System.arraycopy(a, i, b, i + 1, a.length - i);
+			b[i] = value;
+			return b;
+		}
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * build the trie of the packed alleles of the dictionary
+	 */
+	public AlleleTrie(AlleleDictionary dictionary) {
+		for (int id = 0; id < dictionary.size(); id++) {
+			long packed = dictionary.packed(id);
+			if (packed == PackedAllele.NONE) break;
+			Node node = root;
+			for (int field = 0, fields = PackedAllele.fields(packed); field < fields; field++) {
+				node = node.addChild(PackedAllele.field(packed, field));
+			}
+			node.add(packed, id);
+		}
+	}
+
+	/**
+	 * Resolve an allele by longest prefix: the allele itself if in the trie, otherwise the longest
+	 * truncation of it (without expression suffix) in the trie.
+	 * @return dictionary id of the allele or prefix found, or -1 if none
+	 */
+	public int longestPrefix(long packed) {
+		if (packed == PackedAllele.NONE) return -1;
+		int fields = PackedAllele.fields(packed);
+		int longest = -1;
+		Node node = root;
+		for (int depth = 1; depth <= fields; depth++) {
+			node = node.child(PackedAllele.field(packed, depth - 1));
+			if (null == node) break;
+			int id = node.id((depth == fields) ? packed : PackedAllele.truncate(packed, depth));
+			if (id >= 0) longest = id;
+		}
+		return longest;
+	}
+
+	/**
+	 * visit the alleles under the prefix (including the prefix itself), in packed order
+	 * @param prefix packed prefix; if it has an expression suffix, only the allele itself matches
+	 * @param action called with the dictionary id of each allele
+	 */
+	public void forEachUnder(long prefix, IntConsumer action) {
+		if (prefix == PackedAllele.NONE) return;
+		Node node = root;
+		for (int field = 0, fields = PackedAllele.fields(prefix); field < fields && null != node; field++) {
+			node = node.child(PackedAllele.field(prefix, field));
+		}
+		if (null == node) return;
+		if (PackedAllele.suffix(prefix) != 0) {
+			int id = node.id(prefix);
+			if (id >= 0) action.accept(id);
+			return;
+		}
+		node.forEach(action);
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.nmdp.gl.Allele;
+import org.nmdp.gl.AlleleList;
+import org.nmdp.gl.Genotype;
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.Haplotype;
+import org.nmdp.gl.Locus;
+import org.nmdp.gl.client.GlClient;
+import org.nmdp.gl.client.GlClientException;
+
+import com.google.common.base.Splitter;
+import com.google.inject.Inject;
+
+/**
+ * Implementation of GlResolver that parses GenotypeLists without registering them with a GlClient,
+ * for matching.  Resolving through GlClient.createGenotypeList() registers every distinct glstring 
+ * (and its genotypes, haplotypes and allele lists) with the client, and the local client keeps them 
+ * forever; the GenotypeLists built here are plain objects, collected once no longer used.  Only the 
+ * HLA-DPB1 locus is taken from the GlClient, so that alleles compare equal on locus with those of the 
+ * match service; alleles of other loci get unregistered loci, and are ignored by matching.
+ * Alleles are identified by glstring.
+ */
+public class EphemeralGenotypeListResolver implements Function<String, GenotypeList> {
+
+	private static final Splitter GENOTYPES = Splitter.on('|');
+	private static final Splitter HAPLOTYPES = Splitter.on('+');
+	private static final Splitter ALLELE_LISTS = Splitter.on('~');
+	private static final Splitter ALLELES = Splitter.on('/');
+
+	final private GlClient glClient;
+	private volatile Locus dpb1;
+
+	@Inject
+	public EphemeralGenotypeListResolver(GlClient glClient) {
+		this.glClient = glClient;
+	}
+
+	/**
+	 * Parse the glstring to a GenotypeList.
+	 */
+	@Override
+	public GenotypeList apply(String glstring) {
+		if (glstring.indexOf('^') >= 0) {
+			throw new RuntimeException("failed to parse glstring: " + glstring + " (not a genotype list)");
+		}
+		try {
+			List<Genotype> genotypes = new ArrayList<>();
+			for (String genotype : GENOTYPES.split(glstring)) {
+				genotypes.add(createGenotype(genotype));
+			}
+			return new GenotypeList(glstring, genotypes);
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("failed to parse glstring: " + glstring, e);
+		}
+	}
+
+	private Genotype createGenotype(String glstring) {
+		List<Haplotype> haplotypes = new ArrayList<>(2);
+		for (String haplotype : HAPLOTYPES.split(glstring)) {
+			haplotypes.add(createHaplotype(haplotype));
+		}
+		return new Genotype(glstring, haplotypes);
+	}
+
+	private Haplotype createHaplotype(String glstring) {
+		List<AlleleList> alleleLists = new ArrayList<>(1);
+		for (String alleleList : ALLELE_LISTS.split(glstring)) {
+			alleleLists.add(createAlleleList(alleleList));
+		}
+		return new Haplotype(glstring, alleleLists);
+	}
+
+	private AlleleList createAlleleList(String glstring) {
+		List<Allele> alleles = new ArrayList<>();
+		for (String allele : ALLELES.split(glstring)) {
+			addAlleles(alleles, allele);
+		}
+		return new AlleleList(glstring, alleles);
+	}
+
+	/**
+	 * add the allele(s) for an allele of the glstring to an allele list
+	 */
+	protected void addAlleles(List<Allele> alleles, String allele) {
+		alleles.add(createAllele(allele));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the glstring is not that of an allele
+	 */
+	protected Allele createAllele(String glstring) {
+		int star = glstring.indexOf('*');
+		if (star < 1 || star == glstring.length() - 1) {
+			throw new IllegalArgumentException("invalid allele: " + glstring);
+		}
+		String locus = glstring.substring(0, star);
+		return new Allele(glstring, glstring, glstring, PackedAllele.LOCUS.equals(locus) ? getDpb1Locus() : new Locus(locus, locus));
+	}
+
+	private Locus getDpb1Locus() {
+		Locus locus = dpb1;
+		if (null == locus) {
+			try {
+				dpb1 = locus = glClient.createLocus(PackedAllele.LOCUS);
+			} catch (GlClientException e) {
+				throw new RuntimeException("unable to create DPB1 locus", e);
+			}
+		}
+		return locus;
+	}
+
+}
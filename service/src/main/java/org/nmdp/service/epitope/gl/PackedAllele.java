@@ -0,0 +1,186 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+/**
+ * Packed numeric representation of HLA-DPB1 allele names (e.g. HLA-DPB1*104:01:01:02N) in a long: 
+ * up to four fields of up to four digits, and an optional expression suffix.  Fields are packed from 
+ * the most significant bits down, so packed alleles order numerically field by field, with fewer 
+ * fields before more and no suffix before any suffix.  Truncating to fewer fields is a mask.
+ * Names that can't be packed (other loci, allele codes, single digit fields, etc.) parse as NONE, 
+ * and callers fall back to the string.
+ */
+public final class PackedAllele {
+
+	/**
+	 * result of parsing a name that can't be packed; never a valid packed allele
+	 */
+	public static final long NONE = -1L;
+
+	public static final String LOCUS = "HLA-DPB1";
+	public static final String SHORT_LOCUS = "DPB1";
+
+	static final int FIELDS = 4;
+	static final int FIELD_BITS = 12;
+	static final int SUFFIX_BITS = 5;
+	static final int MAX_FIELD = (1 << FIELD_BITS) - 2;
+	static final int MAX_DIGITS = 4;
+	static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+	static final long SUFFIX_MASK = (1L << SUFFIX_BITS) - 1;
+
+	private PackedAllele() {
+	}
+
+	private static int shift(int field) {
+		return SUFFIX_BITS + (FIELDS - 1 - field) * FIELD_BITS;
+	}
+
+	/**
+	 * @param allele allele name, prefixed by HLA-DPB1* or DPB1*, or unprefixed
+	 * @return the packed allele, or NONE
+	 */
+	public static long parse(String allele) {
+		int star = allele.indexOf('*');
+		if (star >= 0 
+				&& !(star == LOCUS.length() && allele.startsWith(LOCUS)) 
+				&& !(star == SHORT_LOCUS.length() && allele.startsWith(SHORT_LOCUS))) 
+		{
+			return NONE;
+		}
+		return parseName(allele, star + 1, allele.length());
+	}
+
+	/**
+	 * parse the fields and suffix of an allele name, without prefix
+	 * @param s string containing the name
+	 * @param from index of the first character of the name
+	 * @param to index following the last character of the name
+	 * @return the packed allele, or NONE
+	 */
+	public static long parseName(CharSequence s, int from, int to) {
+		long packed = 0;
+		int i = from;
+		for (int field = 0; field < FIELDS; field++) {
+			int start = i;
+			int value = 0;
+			while (i < to) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9') break;
+				if (i - start == MAX_DIGITS) return NONE;
+				value = value * 10 + (c - '0');
+				i++;
+			}
+			int digits = i - start;
+			// fields are zero-padded to two digits, so that format() gives back the name
+			if (digits < 2 || (digits > 2 && s.charAt(start) == '0') || value > MAX_FIELD) return NONE;
+			packed |= (long) (value + 1) << shift(field);
+			if (i == to) return packed;
+			char c = s.charAt(i);
+			if (c >= 'A' && c <= 'Z' && i + 1 == to) return packed | (c - 'A' + 1);
+			if (c != ':') return NONE;
+			i++;
+		}
+		return NONE;
+	}
+
+	/**
+	 * @return the name of the packed allele, without prefix
+	 */
+	public static String format(long packed) {
+		return appendTo(new StringBuilder(16), packed).toString();
+	}
+
+	/**
+	 * append the name of the packed allele, without prefix
+	 */
+	public static StringBuilder appendTo(StringBuilder sb, long packed) {
+		for (int field = 0; field < FIELDS; field++) {
+			int value = field(packed, field);
+			if (value < 0) break;
+			if (field > 0) sb.append(':');
+			if (value < 10) sb.append('0');
+			sb.append(value);
+		}
+		char suffix = suffix(packed);
+		if (suffix != 0) sb.append(suffix);
+		return sb;
+	}
+
+	/**
+	 * @return the value of the given (zero-based) field, or -1 if the allele has fewer fields
+	 */
+	public static int field(long packed, int field) {
+		return (int) ((packed >>> shift(field)) & FIELD_MASK) - 1;
+	}
+
+	/**
+	 * @return number of fields of the allele
+	 */
+	public static int fields(long packed) {
+		int fields = 0;
+		while (fields < FIELDS && field(packed, fields) >= 0) fields++;
+		return fields;
+	}
+
+	/**
+	 * @return expression suffix of the allele, or 0 if none
+	 */
+	public static char suffix(long packed) {
+		int suffix = (int) (packed & SUFFIX_MASK);
+		return (suffix == 0) ? 0 : (char) ('A' + suffix - 1);
+	}
+
+	/**
+	 * @return true if the allele is a null (non-expressed) allele
+	 */
+	public static boolean isNull(long packed) {
+		return suffix(packed) == 'N';
+	}
+
+	/**
+	 * @return the allele without its expression suffix
+	 */
+	public static long stripSuffix(long packed) {
+		return packed & ~SUFFIX_MASK;
+	}
+
+	/**
+	 * @param fields number of fields to keep, at least one
+	 * @return the allele truncated to the given number of fields, without its expression suffix
+	 */
+	public static long truncate(long packed, int fields) {
+		if (fields < 1) throw new IllegalArgumentException("fields: " + fields);
+		if (fields >= FIELDS) return stripSuffix(packed);
+		return packed & (-1L << shift(fields - 1));
+	}
+
+	/**
+	 * order of packed alleles: numeric by field, fewer fields first, no suffix first
+	 */
+	public static int compare(long lhs, long rhs) {
+		return Long.compare(lhs, rhs);
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.nmdp.gl.Allele;
+import org.nmdp.gl.client.GlClient;
+import org.nmdp.service.epitope.gl.transform.GlStringFunctions;
+import org.nmdp.service.epitope.jfr.CacheEvent;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Resolves the GenotypeList used for matching from a glstring as received, in a single pass over its
+ * structure: each allele is normalized to its prefix, expanded if an allele code, and each resulting 
+ * allele normalized to its group and trimmed to its leading fields, as it is added to its allele list.
+ * Equivalent to resolving the glstring as transformed by the match glstring transformer (see 
+ * LocalServiceModule), without building the transformed glstring at each step and parsing it again.  
+ * Allele lists keep the alleles in order, including duplicates left by trimming, as when parsed from 
+ * the transformed glstring.  Components of the GenotypeList are identified by their glstring as 
+ * received.  The normalized alleles of each allele code are cached (up to the given number of codes) 
+ * for the current version of the reference data, since the same codes recur across many typings.
+ */
+public class TypingPipeline extends EphemeralGenotypeListResolver {
+
+	private final Function<String, String> prefixNormalizer;
+	private final Function<String, List<String>> alleleCodeExpander;
+	private final Function<String, String> groupNormalizer;
+	private final Function<String, String> fieldTrimmer;
+	private final LongSupplier datasetVersion;
+	private final Cache<String, Expansion> expansions;
+
+	/**
+	 * @param glClient GlClient of the DPB1 locus
+	 * @param defaultLocus locus of alleles without prefix
+	 * @param alleleCodeExpander resolver of the alleles of an allele code
+	 * @param groupResolver resolver of the group of an allele (or null if none)
+	 * @param fields number of fields to which to trim alleles
+	 * @param datasetVersion version of the allele code and group data (see DatasetVersion)
+	 * @param codeCacheSize maximum number of allele codes for which to cache normalized alleles
+	 */
+	public TypingPipeline(GlClient glClient, String defaultLocus, Function<String, List<String>> alleleCodeExpander, 
+			Function<String, String> groupResolver, int fields, LongSupplier datasetVersion, long codeCacheSize) 
+	{
+		super(glClient);
+		this.prefixNormalizer = GlStringFunctions.normalizePrefix(defaultLocus);
+		this.alleleCodeExpander = alleleCodeExpander;
+		this.groupNormalizer = GlStringFunctions.normalizeGroup(groupResolver);
+		this.fieldTrimmer = GlStringFunctions.trimAlleleToFields(fields);
+		this.datasetVersion = datasetVersion;
+		this.expansions = CacheBuilder.newBuilder().maximumSize(codeCacheSize)
+				.removalListener(CacheEvent.<String, Expansion>evictions("expansions")).build();
+	}
+
+	@Override
+	protected void addAlleles(List<Allele> alleles, String allele) {
+		allele = prefixNormalizer.apply(allele);
+		if (GlStringFunctions.isAlleleCode(allele)) {
+			List<Allele> expanded = expand(allele);
+			if (null != expanded) {
+				alleles.addAll(expanded);
+				return;
+			}
+		}
+		alleles.add(createAllele(normalize(allele)));
+	}
+
+	/**
+	 * @return normalized alleles of the allele code, or null if not a known allele code
+	 */
+	List<Allele> expand(String code) {
+		long version = datasetVersion.getAsLong();
+		Expansion expansion = expansions.getIfPresent(code);
+		if (null == expansion || expansion.version != version) {
+			String action = (null == expansion) ? CacheEvent.LOAD : CacheEvent.RELOAD;
+			CacheEvent event = new CacheEvent();
+			event.begin();
+			List<String> expanded = alleleCodeExpander.apply(code);
+			if (null == expanded) return null;
+			List<Allele> alleles = new ArrayList<>(expanded.size());
+			for (String a : expanded) {
+				alleles.add(createAllele(normalize(a)));
+			}
+			expansion = new Expansion(version, Collections.unmodifiableList(alleles));
+			expansions.put(code, expansion);
+			event.loaded("expansions", action, code);
+		}
+		return expansion.alleles;
+	}
+
+	private String normalize(String allele) {
+		return fieldTrimmer.apply(groupNormalizer.apply(allele));
+	}
+
+	/**
+	 * normalized alleles of an allele code, for a version of the reference data
+	 */
+	private static class Expansion {
+		final long version;
+		final List<Allele> alleles;
+		Expansion(long version, List<Allele> alleles) {
+			this.version = version;
+			this.alleles = alleles;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package org.nmdp.service.epitope.gl.transform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.nmdp.service.epitope.gl.PackedAllele;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+/**
+ * Canonical form of a glstring, for use as a cache key: glstrings differing only in allele prefixes and 
+ * in the order of the alleles of each allele list or of the haplotypes of each genotype (e.g. 
+ * HLA-DPB1*04:01+HLA-DPB1*02:01 and DPB1*02:01+DPB1*04:01) have the same canonical form.  Allele prefixes 
+ * are normalized, the alleles of each allele list are sorted (in allele order) and the haplotypes of each 
+ * genotype are sorted.  Nothing is deduplicated, and genotypes keep their order, since the distribution of 
+ * allele pairs of a genotype list depends on both.  Glstrings with multilocus unphased genotypes (^) are 
+ * left as is.
+ */
+public class GlStringCanonicalizer implements Function<String, String> {
+
+	/**
+	 * packed alleles first, in packed order, then any others in glstring order
+	 */
+	static final Comparator<String> ALLELE_ORDER = (a1, a2) -> {
+		long p1 = PackedAllele.parse(a1);
+		long p2 = PackedAllele.parse(a2);
+		if (p1 != PackedAllele.NONE && p2 != PackedAllele.NONE) return PackedAllele.compare(p1, p2);
+		if (p1 != PackedAllele.NONE) return -1;
+		if (p2 != PackedAllele.NONE) return 1;
+		return a1.compareTo(a2);
+	};
+
+	private static final Splitter GENOTYPES = Splitter.on('|');
+	private static final Splitter HAPLOTYPES = Splitter.on('+');
+	private static final Splitter ALLELE_LISTS = Splitter.on('~');
+	private static final Splitter ALLELES = Splitter.on('/');
+
+	private final Function<String, String> prefixNormalizer;
+
+	/**
+	 * @param defaultLocus locus of alleles without prefix
+	 */
+	public GlStringCanonicalizer(String defaultLocus) {
+		this.prefixNormalizer = GlStringFunctions.normalizePrefix(defaultLocus);
+	}
+
+	@Override
+	public String apply(String glstring) {
+		if (glstring.indexOf('^') >= 0) return glstring;
+		List<String> genotypes = new ArrayList<>(1);
+		for (String genotype : GENOTYPES.split(glstring)) {
+			genotypes.add(canonicalGenotype(genotype));
+		}
+		return Joiner.on('|').join(genotypes);
+	}
+
+	private String canonicalGenotype(String genotype) {
+		List<String> haplotypes = new ArrayList<>(2);
+		for (String haplotype : HAPLOTYPES.split(genotype)) {
+			haplotypes.add(canonicalHaplotype(haplotype));
+		}
+		Collections.sort(haplotypes);
+		return Joiner.on('+').join(haplotypes);
+	}
+
+	private String canonicalHaplotype(String haplotype) {
+		List<String> alleleLists = new ArrayList<>(1);
+		for (String alleleList : ALLELE_LISTS.split(haplotype)) {
+			alleleLists.add(canonicalAlleleList(alleleList));
+		}
+		return Joiner.on('~').join(alleleLists);
+	}
+
+	private String canonicalAlleleList(String alleleList) {
+		List<String> alleles = new ArrayList<>();
+		for (String allele : ALLELES.split(alleleList)) {
+			alleles.add(prefixNormalizer.apply(allele));
+		}
+		alleles.sort(ALLELE_ORDER);
+		return Joiner.on('/').join(alleles);
+	}
+
+}
@@ -5,6 +5,8 @@ import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.nmdp.service.epitope.gl.PackedAllele;
+
 /**
  * Created by Erik Pearson
  */
@@ -33,6 +35,13 @@ public class GlStringFunctions {
         return new GlStringAlleleTransformer(alleleTransformer);
     }
 
+    /**
+     * @return function returning the canonical form of a glstring (see GlStringCanonicalizer)
+     */
+    public static Function<String, String> canonicalize(String defaultLocus) {
+        return new GlStringCanonicalizer(defaultLocus);
+    }
+
 //    private static final Pattern ALLELE_SUFFIX_PATTERN = Pattern.compile("\\p{Alpha}?$");
 //
 //    private static String stripSuffix(String allele) {
@@ -51,7 +60,25 @@ public class GlStringFunctions {
 //    }
 
     public static Function<String, String> trimAllelesToFields(int numFields) {
-        return applyToAlleles(a -> {
+        return applyToAlleles(trimAlleleToFields(numFields));
+    }
+
+    /**
+     * @return function trimming a single allele to the given number of fields
+     */
+    public static Function<String, String> trimAlleleToFields(int numFields) {
+        return a -> {
+            int star = a.indexOf('*');
+            // packed fast path, falling back to the pattern for anything that doesn't pack
+            long packed = (star < 0 || numFields < 1) ? PackedAllele.NONE : PackedAllele.parseName(a, star + 1, a.length());
+            if (packed != PackedAllele.NONE) {
+                if (PackedAllele.fields(packed) <= numFields && PackedAllele.suffix(packed) == 0) return a;
+                long trimmed = PackedAllele.truncate(packed, numFields);
+                StringBuilder sb = new StringBuilder(a.length()).append(a, 0, star + 1);
+                PackedAllele.appendTo(sb, trimmed);
+                if (PackedAllele.isNull(packed)) sb.append('N');
+                return sb.toString();
+            }
             Matcher m = ALLELE_FIELD_PATTERN.matcher(a);
             StringBuffer sb = new StringBuffer();
             if (!m.find()) return a;
@@ -64,7 +91,7 @@ public class GlStringFunctions {
             }
             if (nullAllele) sb.append("N");
             return sb.toString();
-        });
+        };
     }
 
 //    public static Function<String, String> conditionalFunction(Predicate<String> predicate, Function<String, String> function) {
@@ -77,22 +104,43 @@ public class GlStringFunctions {
 
     public static Function<String, String> expandAlleleCodes(Function<String, String> alleleCodeResolver) {
         return applyToAlleles(a -> {
-            if (!ALLELE_CODE_PATTERN.matcher(a).matches()) return a;
+            if (!isAlleleCode(a)) return a;
             String expanded = alleleCodeResolver.apply(a);
             return (expanded == null) ? a : expanded;
         });
     }
 
+    /**
+     * @return true if the allele is an allele code (e.g. HLA-DPB1*04:AB), as expanded by expandAlleleCodes()
+     */
+    public static boolean isAlleleCode(String allele) {
+        return ALLELE_CODE_PATTERN.matcher(allele).matches();
+    }
+
     public static Function<String, String> normalizeGroups(Function<String, String> groupResolver) {
-        return applyToAlleles(a -> {
+        return applyToAlleles(normalizeGroup(groupResolver));
+    }
+
+    /**
+     * @return function normalizing a single allele to its group, if any
+     */
+    public static Function<String, String> normalizeGroup(Function<String, String> groupResolver) {
+        return a -> {
             if (!ALLELE_PATTERN.matcher(a).matches()) return a;
             String normalized = groupResolver.apply(a);
             return (normalized == null) ? a : normalized;
-        });
+        };
     }
 
     public static Function<String, String> normalizePrefixes(String defaultLocus) {
-        return applyToAlleles(a -> {
+        return applyToAlleles(normalizePrefix(defaultLocus));
+    }
+
+    /**
+     * @return function normalizing the prefix of a single allele
+     */
+    public static Function<String, String> normalizePrefix(String defaultLocus) {
+        return a -> {
             Matcher m = ALLELE_PREFIX_PATTERN.matcher(a);
             StringBuilder sb = new StringBuilder();
             if (!m.matches()) return a;
@@ -107,7 +155,7 @@ public class GlStringFunctions {
             }
             sb.append(m.group("allele"));
             return sb.toString();
-        });
+        };
     }
 
 }
@@ -30,6 +30,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import org.nmdp.service.epitope.jfr.CacheEvent;
+
 import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -47,6 +49,8 @@ import com.google.inject.Inject;
  */
 public class CachingFunction<K, V> implements Function<K, V> {
 
+	private static final String CACHE = CachingFunction.class.getSimpleName();
+
 	private LoadingCache<K, Optional<V>> cache;
 	
 	private List<CachingFunctionListener<K, V>> listenerList = new ArrayList<>();
@@ -66,19 +70,33 @@ public class CachingFunction<K, V> implements Function<K, V> {
 				.expireAfterAccess(duration, TimeUnit.MILLISECONDS)
 				.initialCapacity(3)
 				.maximumSize(cacheCapacity)
+				.removalListener(CacheEvent.<K, Optional<V>>evictions(CACHE))
 				.build(new CacheLoader<K, Optional<V>>() {
 					public Optional<V> load(K key) {
-						return Optional.fromNullable(delegate.apply(key));
+						return CachingFunction.load(delegate, key, CacheEvent.LOAD);
 					}
 					@Override
 					public ListenableFuture<Optional<V>> reload(final K key, final Optional<V> oldValue) throws Exception {
-						final ListenableFuture<Optional<V>> future = executor.submit(() -> load(key));
+						final ListenableFuture<Optional<V>> future = executor.submit(() -> CachingFunction.load(delegate, key, CacheEvent.RELOAD));
 						notifyListeners(future, key, oldValue);
 						return future;
 					}
 				});
 	}
 
+	/**
+	 * load a value from the delegate, recording a flight recorder event for the load
+	 */
+	private static <K, V> Optional<V> load(Function<K, V> delegate, K key, String action) {
+		CacheEvent event = new CacheEvent();
+		event.begin();
+		try {
+			return Optional.fromNullable(delegate.apply(key));
+		} finally {
+			event.loaded(CACHE, action, key);
+		}
+	}
+
 	/**
 	 * add a listener to the cache, to be notified of refreshes to cache content
 	 * @param listener
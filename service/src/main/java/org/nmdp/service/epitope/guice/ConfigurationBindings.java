@@ -265,7 +265,7 @@ public @interface ConfigurationBindings {
 	@BindingAnnotation
 	@Target({FIELD, PARAMETER, METHOD})
 	@Retention(RUNTIME)
-	@interface MatchGlstringTransformer {}
+	@interface GenotypeListResolver {}
 
 	/**
 	 * URLs for HLA allele protein fasta file, published quarterly
@@ -274,7 +274,7 @@ public @interface ConfigurationBindings {
 	@BindingAnnotation
 	@Target({FIELD, PARAMETER, METHOD})
 	@Retention(RUNTIME)
-	@interface GenotypeListResolver {}
+	@interface ImmuneGroupResolver {}
 
 	/**
 	 * URLs for HLA allele protein fasta file, published quarterly
@@ -283,15 +283,134 @@ public @interface ConfigurationBindings {
 	@BindingAnnotation
 	@Target({FIELD, PARAMETER, METHOD})
 	@Retention(RUNTIME)
-	@interface ImmuneGroupResolver {}
+	@interface AlleleCodeResolver {}
 
 	/**
-	 * URLs for HLA allele protein fasta file, published quarterly
-	 * (typically: ftp://ftp.ebi.ac.uk/pub/databases/ipd/imgt/hla/hla_prot.fasta)
+	 * resolver of the alleles of an allele code, as a list
 	 */
 	@BindingAnnotation
 	@Target({FIELD, PARAMETER, METHOD})
 	@Retention(RUNTIME)
-	@interface AlleleCodeResolver {}
+	@interface AlleleCodeExpander {}
+
+	/**
+	 * directory to which asynchronous match job results are written
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface JobDirectory {}
+
+	/**
+	 * number of milliseconds to retain match job results after the job finishes
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface JobRetentionMillis {}
+
+	/**
+	 * number of worker threads processing asynchronous match jobs
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface JobWorkerThreads {}
+
+	/**
+	 * maximum number of match jobs waiting for a worker before submissions are rejected
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface JobQueueSize {}
+
+	/**
+	 * number of threads computing results for asynchronous (suspended) requests
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface ComputeThreads {}
+
+	/**
+	 * number of asynchronous requests allowed to wait for a compute thread
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface ComputeQueueSize {}
+
+	/**
+	 * maximum number of match requests running or waiting on the compute executor
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchBulkheadSize {}
+
+	/**
+	 * number of seconds clients are asked to wait before retrying a rejected request
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface RetryAfterSeconds {}
+
+	/**
+	 * maximum estimated number of allele pair evaluations for a single match
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchComplexityBudget {}
+
+	/**
+	 * number of milliseconds a single match may run before it is abandoned (0 for no deadline)
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchDeadlineMillis {}
+
+	/**
+	 * behavior when a match exceeds its complexity budget or deadline (FAIL or GROUP_ONLY)
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchLimitMode {}
+
+	/**
+	 * cumulative frequency (as a fraction of the haplotype) of the least frequent alleles of a haplotype that may be discarded before matching (0 to disable pruning)
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchPruneThreshold {}
+
+	/**
+	 * latency (in milliseconds) above which match requests are written to the slow request log, or 0 to disable
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface SlowRequestMillis {}
+
+	/**
+	 * fraction of match requests to trace (without the trace parameter), writing their traces to the match trace log
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface TraceSampleRate {}
+
+	/**
+	 * maximum number of match results to cache (by recipient and donor typing, serving either direction), or 0 to disable
+	 */
+	@BindingAnnotation
+	@Target({FIELD, PARAMETER, METHOD})
+	@Retention(RUNTIME)
+	@interface MatchResultCacheSize {}
 
 }
@@ -23,11 +23,14 @@
 
 package org.nmdp.service.epitope.guice;
 
+import static org.nmdp.service.epitope.service.MatchMetrics.timed;
+
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import org.nmdp.gl.Allele;
 import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.client.GlClient;
 import org.nmdp.service.epitope.allelecode.DbiAlleleCodeResolver;
 import org.nmdp.service.epitope.db.DbiManager;
 import org.nmdp.service.epitope.db.DbiManagerImpl;
@@ -61,7 +64,7 @@ public class LocalServiceModule extends AbstractModule {
 		// standard implementations
 		bind(DbiManager.class).to(DbiManagerImpl.class);
 		bind(EpitopeService.class).to(EpitopeServiceImpl.class).in(Singleton.class);
-		bind(MatchService.class).to(MatchServiceImpl.class);
+		bind(MatchService.class).to(MatchServiceImpl.class).in(Singleton.class);
 		bind(FrequencyService.class).to(FrequencyServiceImpl.class).in(Singleton.class);
 		bind(ImmuneGroupInitializer.class).to(AlignedImmuneGroupInitializer.class);
 	}
@@ -105,6 +108,16 @@ public class LocalServiceModule extends AbstractModule {
 		return cache(resolver, duration, duration, size);
 	}
 	
+	/**
+	 * resolve allele codes from alpha.v3.zip file, as lists of alleles
+	 */
+	@Provides
+	@Singleton
+	@AlleleCodeExpander
+	public Function<String, List<String>> getAlleleCodeExpander(DbiAlleleCodeResolver resolver, @AlleleCodeCacheMillis long duration, @AlleleCodeCacheSize long size) {
+		return cache(resolver::expand, duration, duration, size);
+	}
+	
 	/**
 	 * resolve groups from internal sqlite db
 	 */
@@ -116,13 +129,30 @@ public class LocalServiceModule extends AbstractModule {
 	}
 	
 	/**
-	 * resolve gl strings using supplied glclient (see glclient bindings)
+	 * resolve gl strings for matching in a single pass, applying the glstring transformations (plus p-group 
+	 * normalization and truncation to ars resolution) to each allele (without registering them with the 
+	 * glclient, see glclient bindings).
+	 * gl strings are canonicalized first, so that equivalent gl strings share cache entries and results, 
+	 * and concurrent resolutions of the same canonical gl string are coalesced.
 	 */
 	@Provides
 	@Singleton
 	@GenotypeListResolver
-	public Function<String, GenotypeList> getGenotypeListResolver(org.nmdp.service.epitope.gl.GenotypeListResolver resolver, @GlCacheMillis long duration, @GlCacheSize long size) {
-		return cache(resolver, duration, duration, size);
+	public Function<String, GenotypeList> getGenotypeListResolver(
+			GlClient glClient,
+			@AlleleCodeExpander Function<String, List<String>> alleleCodeExpander,
+			DbiManager dbi,
+			MatchMetrics metrics,
+			DatasetVersion datasetVersion,
+			@AlleleCodeCacheSize long codeCacheSize,
+			@GlCacheMillis long duration, 
+			@GlCacheSize long size) 
+	{
+		TypingPipeline pipeline = new TypingPipeline(glClient, "HLA-DPB1", 
+				timed(metrics.getExpandAlleleCodes(), alleleCodeExpander), dbi::getPGroupForAllele, 2, 
+				datasetVersion, codeCacheSize);
+		return GlStringFunctions.canonicalize("HLA-DPB1").andThen(SingleFlight.coalesce(
+				cache(pipeline, duration, duration, size), metrics.getGenotypeListRequests(), metrics.getGenotypeListCoalesced()));
 	}
 	
 	/**
@@ -135,18 +165,4 @@ public class LocalServiceModule extends AbstractModule {
 				GlStringFunctions.expandAlleleCodes(alleleCodeResolver));
 	}
 	
-	/**
-	 * for matching, also coalesce p-groups and truncate to ars resolution
-	 */
-	@Provides
-	@MatchGlstringTransformer
-	public Function<String, String> getMatchGlstringTransformer(
-			@GlstringTransformer Function<String, String> glStringTransformer,
-			DbiManager dbi)
-	{
-		return glStringTransformer
-				.andThen(GlStringFunctions.normalizeGroups(dbi::getPGroupForAllele))
-				.andThen(GlStringFunctions.trimAllelesToFields(2));
-	}
-	
 }
@@ -0,0 +1,92 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.google.common.cache.RemovalListener;
+
+/**
+ * Flight recorder event for a load, reload or eviction of a cached value.
+ */
+@Name("org.nmdp.service.epitope.Cache")
+@Label("Cache")
+@Category({ "Epitope Service", "Cache" })
+@Description("Load, reload or eviction of a cached value")
+@StackTrace(false)
+public class CacheEvent extends jdk.jfr.Event {
+
+	public static final String LOAD = "load";
+	public static final String RELOAD = "reload";
+	public static final String EVICTION = "eviction";
+
+	@Label("Cache")
+	public String cache;
+
+	@Label("Action")
+	public String action;
+
+	@Label("Key")
+	public String key;
+
+	@Label("Cause")
+	@Description("Removal cause, for evictions")
+	public String cause;
+
+	/**
+	 * commit the event, begun before loading the value, for a load (or reload) of the key into the named cache
+	 */
+	public void loaded(String cache, String action, Object key) {
+		if (shouldCommit()) {
+			this.cache = cache;
+			this.action = action;
+			this.key = String.valueOf(key);
+			commit();
+		}
+	}
+
+	/**
+	 * @return removal listener that records an event for each entry evicted from the named cache (expired or 
+	 * over capacity)
+	 */
+	public static <K, V> RemovalListener<K, V> evictions(String cache) {
+		return n -> {
+			if (!n.wasEvicted()) return;
+			CacheEvent event = new CacheEvent();
+			if (event.shouldCommit()) {
+				event.cache = cache;
+				event.action = EVICTION;
+				event.key = String.valueOf(n.getKey());
+				event.cause = n.getCause().name();
+				event.commit();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a run of a reference data initializer.
+ */
+@Name("org.nmdp.service.epitope.Initializer")
+@Label("Initializer")
+@Category({ "Epitope Service", "Refresh" })
+@Description("Refresh of a reference data set from its source urls")
+@StackTrace(false)
+public class InitializerEvent extends jdk.jfr.Event {
+
+	@Label("Dataset")
+	public String dataset;
+
+	@Label("Rows")
+	@Description("Number of rows loaded, zero if the source was unchanged")
+	public long rows;
+
+	@Label("Changed")
+	@Description("Whether the source was newer than the loaded data set")
+	public boolean changed;
+
+}
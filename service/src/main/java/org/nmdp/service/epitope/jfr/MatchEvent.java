@@ -0,0 +1,68 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a single match (or match grade) of a recipient and donor genotype list.
+ */
+@Name("org.nmdp.service.epitope.Match")
+@Label("Match")
+@Category({ "Epitope Service", "Match" })
+@Description("Match of a recipient and donor genotype list")
+@StackTrace(false)
+public class MatchEvent extends jdk.jfr.Event {
+
+	@Label("Recipient Race")
+	public String recipientRace;
+
+	@Label("Donor Race")
+	public String donorRace;
+
+	@Label("Recipient Pairs")
+	@Description("Number of allele pairs enumerated for the recipient")
+	public int recipientPairs;
+
+	@Label("Donor Pairs")
+	@Description("Number of allele pairs enumerated for the donor")
+	public int donorPairs;
+
+	@Label("Grade Only")
+	public boolean gradeOnly;
+
+	@Label("Limit")
+	@Description("Limit that was exceeded, if the match fell back or failed")
+	public String limit;
+
+	@Label("Cached")
+	@Description("Whether the result was served from the result cache")
+	public boolean cached;
+
+}
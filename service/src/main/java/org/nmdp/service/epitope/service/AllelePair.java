@@ -25,6 +25,7 @@ package org.nmdp.service.epitope.service;
 
 import org.nmdp.gl.Allele;
 import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.gl.PackedAllele;
 
 /**
  * Represents a pair of copied alleles (as in of a genotype), along with the DetailRace of the subject. 
@@ -44,7 +45,7 @@ public class AllelePair {
 	 */
 	public AllelePair(Allele a1, Integer g1, Allele a2, Integer g2, DetailRace race) {
 		// normalize order
-		if (a1.getGlstring().compareTo(a2.getGlstring()) < 0) {
+		if (compare(a1, a2) < 0) {
 		    this.a1 = a1;
 		    this.g1 = g1;
 		    this.a2 = a2;
@@ -58,6 +59,16 @@ public class AllelePair {
 		this.race = race;
 	}
 
+	/**
+	 * numeric allele order where both alleles pack, otherwise glstring order
+	 */
+	private static int compare(Allele a1, Allele a2) {
+		long p1 = PackedAllele.parse(a1.getGlstring());
+		long p2 = PackedAllele.parse(a2.getGlstring());
+		if (p1 != PackedAllele.NONE && p2 != PackedAllele.NONE) return PackedAllele.compare(p1, p2);
+		return a1.getGlstring().compareTo(a2.getGlstring());
+	}
+
     @Override
 	public String toString() {
 		return "AllelePair [a1=" + a1 + "(g:" + g1 + "), a2=" + a2 + "(g:" + g2 + "), race=" + race + "]";
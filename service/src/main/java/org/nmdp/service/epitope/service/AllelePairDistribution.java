@@ -0,0 +1,64 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+import java.util.Map;
+
+/**
+ * Probability distribution of the allele pairs possible for a subject's typing, along with the probability 
+ * mass discarded (by pruning infrequent alleles) while computing it.  The probabilities of the retained pairs 
+ * are renormalized to sum to 1.
+ */
+public class AllelePairDistribution {
+
+	private final Map<AllelePair, Double> probabilities;
+	private final double discarded;
+
+	/**
+	 * construct distribution with the specified pair probabilities and discarded mass
+	 */
+	public AllelePairDistribution(Map<AllelePair, Double> probabilities, double discarded) {
+		this.probabilities = probabilities;
+		this.discarded = discarded;
+	}
+
+	/**
+	 * @return probabilities of the retained allele pairs
+	 */
+	public Map<AllelePair, Double> getProbabilities() {
+		return probabilities;
+	}
+
+	/**
+	 * @return probability mass of the pairs discarded before renormalization (0.0 if none were discarded)
+	 */
+	public double getDiscarded() {
+		return discarded;
+	}
+
+	@Override
+	public String toString() {
+		return "AllelePairDistribution [probabilities=" + probabilities + ", discarded=" + discarded + "]";
+	}
+}
@@ -0,0 +1,55 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+import java.util.function.LongSupplier;
+
+import com.google.inject.Inject;
+
+/**
+ * Version of the reference data used for matching, for invalidating values derived from it (allele code 
+ * expansions, frequencies and groups).  Each refresh of the reference data ends by rebuilding the TCE 
+ * group and frequency maps (see EpitopeServiceApplication), so their versions together version the data 
+ * loaded before them as well.
+ */
+public class DatasetVersion implements LongSupplier {
+
+	private final EpitopeService epitopeService;
+	private final FrequencyService freqService;
+
+	@Inject
+	public DatasetVersion(EpitopeService epitopeService, FrequencyService freqService) {
+		this.epitopeService = epitopeService;
+		this.freqService = freqService;
+	}
+
+	/**
+	 * @return version of the TCE group maps (high 32 bits) and of the frequency map (low 32 bits)
+	 */
+	@Override
+	public long getAsLong() {
+		return ((long) epitopeService.getVersion() << 32) | (freqService.getVersion() & 0xFFFFFFFFL);
+	}
+
+}
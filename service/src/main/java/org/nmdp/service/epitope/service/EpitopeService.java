@@ -73,9 +73,21 @@ public interface EpitopeService {
 	 */
 	public List<Allele> getAllelesForImmuneGroup(Integer group);
 
+	/**
+	 * @param prefix an allele or its leading fields (e.g. HLA-DPB1*04:01)
+	 * @return list of alleles under the given prefix, including the prefix itself if an allele, in allele order
+	 * @throws IllegalArgumentException if the prefix is not a DPB1 allele name
+	 */
+	public List<Allele> getAllelesForPrefix(String prefix);
+
 	/**
 	 * build TCE group/allele maps
 	 */
 	void buildImmuneGroupMaps();
 
+	/**
+	 * @return number of times the TCE group/allele maps have been built, for invalidating values derived from them
+	 */
+	int getVersion();
+
 }
@@ -23,26 +23,22 @@
 
 package org.nmdp.service.epitope.service;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import org.nmdp.gl.Allele;
 import org.nmdp.gl.client.GlClient;
 import org.nmdp.gl.client.GlClientException;
 import org.nmdp.service.epitope.db.DbiManager;
+import org.nmdp.service.epitope.gl.AlleleDictionary;
+import org.nmdp.service.epitope.gl.AlleleTrie;
+import org.nmdp.service.epitope.gl.PackedAllele;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.GlstringTransformer;
+import org.nmdp.service.epitope.jfr.RebuildEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
+import java.util.stream.IntStream;
 
 
 /**
@@ -50,8 +46,13 @@ import static java.util.stream.Collectors.toSet;
  */
 public class EpitopeServiceImpl implements EpitopeService {
 
-	private ImmutableListMultimap<Optional<Integer>, Allele> groupAlleleMap;
-	private ImmutableListMultimap<Allele, Optional<Integer>> alleleGroupMap;
+	/**
+	 * group of alleles of unknown TCE group
+	 */
+	static final byte UNKNOWN_GROUP = -1;
+
+	private volatile GroupIndex index = new GroupIndex(Collections.emptyMap());
+	private volatile int version = 0;
 	private GlClient glClient;
 	private Function<String, String> alleleTransformer;
 	private DbiManager dbi;
@@ -81,46 +82,91 @@ public class EpitopeServiceImpl implements EpitopeService {
 	@Override
 	public void buildImmuneGroupMaps() {
 		logger.info("building allele <-> immune group maps");
-		ImmutableListMultimap.Builder<Allele, Optional<Integer>> builder = ImmutableListMultimap.builder();
-		builder.orderKeysBy(Comparator.comparing(Allele::getGlstring));
-		builder.orderValuesBy((lhs, rhs) -> lhs.map(l -> rhs.map(l::compareTo).orElse(-1)).orElse(rhs.map(r -> 1).orElse(0)));
+		RebuildEvent event = new RebuildEvent();
+		event.begin();
+		Map<String, Byte> groups = new HashMap<>();
 		Map<String, Integer> groupLookup = dbi.getAlleleGroupMap();
+		AlleleDictionary lookupDictionary = new AlleleDictionary(groupLookup.keySet());
+		AlleleTrie lookupTrie = new AlleleTrie(lookupDictionary);
 		// add all known imgt alleles
 		dbi.getAllelesForLocus("HLA-DPB1")
-				.forEach(allele -> builder.put(createAllele(allele), findImmuneGroup(groupLookup, allele)));
+				.forEach(allele -> addAllele(groups, allele, findImmuneGroup(groupLookup, lookupDictionary, lookupTrie, allele)));
 		// add all alleles missing from imgt that we have group definitions for
-		Set<String> keySet = builder.build().keySet().stream().map(Allele::getGlstring).collect(toSet());
 		groupLookup.entrySet().stream()
-				.filter(e -> !keySet.contains(e.getKey()))
-				.forEach(e -> builder.put(createAllele(e.getKey()), Optional.of(e.getValue())));
-		alleleGroupMap = builder.build();
-		groupAlleleMap = alleleGroupMap.inverse();
+				.filter(e -> !groups.containsKey(e.getKey()))
+				.forEach(e -> addAllele(groups, e.getKey(), e.getValue()));
+		index = new GroupIndex(groups);
+		// maps are only built by the initializer thread
+		version++;
+		if (event.shouldCommit()) {
+			event.map = "immuneGroup";
+			event.entries = index.dictionary.size();
+			event.commit();
+		}
 		logger.debug("done building allele <-> immune group maps");
 	}
 	
     /**
 	 * Called by buildImmuneGroupMaps(), checks for prefixed alleles with assigned TCE groups, use that group if found
 	 */
-	private Optional<Integer> findImmuneGroup(Map<String, Integer> immuneGroupLookup, String allele) {
-		if (allele.endsWith("N")) return Optional.of(0);
+	private Integer findImmuneGroup(Map<String, Integer> immuneGroupLookup, AlleleDictionary lookupDictionary, 
+			AlleleTrie lookupTrie, String allele) 
+	{
+		if (allele.endsWith("N")) return 0;
+		long packed = PackedAllele.parse(allele);
+		if (packed == PackedAllele.NONE) return findImmuneGroup(immuneGroupLookup, allele);
+		int id = lookupTrie.longestPrefix(packed);
+		return (id < 0) ? null : immuneGroupLookup.get(lookupDictionary.name(id));
+	}
+
+    /**
+	 * Fallback of findImmuneGroup() for alleles that can't be packed
+	 */
+	private Integer findImmuneGroup(Map<String, Integer> immuneGroupLookup, String allele) {
+		if (allele.endsWith("N")) return 0;
 		int last = 0;
 		while (true) {
 			Integer group = immuneGroupLookup.get(allele);
-			if (group != null) { return Optional.of(group); }
+			if (group != null) { return group; }
 			last = allele.lastIndexOf(':');
 			if (last < 0) {
-				return Optional.empty();
+				return null;
 			}
 			allele = allele.substring(0, last);
 		}
 	}
 
+	/**
+	 * Called by buildImmuneGroupMaps(), keeps the lowest known group of alleles listed more than once
+	 */
+	private static void addAllele(Map<String, Byte> groups, String allele, Integer group) {
+		byte g = UNKNOWN_GROUP;
+		if (null != group) {
+			if (group < 0 || group > Byte.MAX_VALUE) {
+				throw new IllegalStateException("TCE group out of range: " + group + " (allele: " + allele + ")");
+			}
+			g = group.byteValue();
+		}
+		Byte previous = groups.get(allele);
+		if (null == previous || (g != UNKNOWN_GROUP && (previous == UNKNOWN_GROUP || g < previous))) {
+			groups.put(allele, g);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public boolean isValidAllele(Allele allele) {
-		return alleleGroupMap.containsKey(allele);
+		return index.dictionary.id(allele.getGlstring()) >= 0;
 	}
 
 	/**
@@ -128,9 +174,12 @@ public class EpitopeServiceImpl implements EpitopeService {
 	 */
 	@Override
 	public Integer getImmuneGroupForAllele(Allele allele) {
-		ImmutableList<Optional<Integer>> list = alleleGroupMap.get(allele);
-		if (list.size() == 0) throw new RuntimeException("unknown allele: " + allele);
-		return list.get(0).orElse(null);
+		GroupIndex index = this.index;
+		int id = index.dictionary.id(allele.getGlstring());
+		if (id < 0) throw new RuntimeException("unknown allele: " + allele);
+		byte group = index.groups[id];
+		// small Integers are cached, no allocation here
+		return (group == UNKNOWN_GROUP) ? null : Integer.valueOf(group);
 	}
 
 //	/**
@@ -146,9 +195,10 @@ public class EpitopeServiceImpl implements EpitopeService {
 	 */
 	@Override
 	public Map<Integer, List<Allele>> getAllImmuneGroups() {
-		Map<Integer, List<Allele>> map = new HashMap<>();
-		for (Optional<Integer> key : groupAlleleMap.keySet()) {
-			if (key.isPresent()) map.put(key.get(), groupAlleleMap.get(key));
+		GroupIndex index = this.index;
+		Map<Integer, List<Allele>> map = new TreeMap<>();
+		for (int group = 0; group < index.members.length; group++) {
+			if (index.members[group].length > 0) map.put(group, index.getMembers(group));
 		}
 		return map;
 	}
@@ -158,10 +208,12 @@ public class EpitopeServiceImpl implements EpitopeService {
 	 */
 	@Override
 	public Map<Allele, Integer> getImmuneGroupsForAllAlleles() {
-		return alleleGroupMap.asMap().entrySet()
-				.stream()
-				.filter(e -> !e.getValue().isEmpty() && e.getValue().iterator().next().isPresent())
-				.collect(toMap(Entry::getKey, e -> e.getValue().iterator().next().get()));
+		GroupIndex index = this.index;
+		Map<Allele, Integer> map = new HashMap<>();
+		for (int id = 0; id < index.dictionary.size(); id++) {
+			if (index.groups[id] != UNKNOWN_GROUP) map.put(index.alleles[id], (int) index.groups[id]);
+		}
+		return map;
 	}
 
 	/**
@@ -169,7 +221,10 @@ public class EpitopeServiceImpl implements EpitopeService {
 	 */
 	@Override
 	public List<Allele> getAllAlleles() {
-		return Lists.newArrayList(alleleGroupMap.keySet());
+		GroupIndex index = this.index;
+		List<Allele> list = new ArrayList<>(index.order.length);
+		for (int id : index.order) list.add(index.alleles[id]);
+		return list;
 	}
 
 	/**
@@ -177,7 +232,85 @@ public class EpitopeServiceImpl implements EpitopeService {
 	 */
 	@Override
 	public List<Allele> getAllelesForImmuneGroup(Integer group) {
-		return groupAlleleMap.get(Optional.of(group));
+		GroupIndex index = this.index;
+		if (null == group || group < 0 || group >= index.members.length) return Collections.emptyList();
+		return index.getMembers(group);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Allele> getAllelesForPrefix(String prefix) {
+		long packed = PackedAllele.parse(prefix);
+		if (packed == PackedAllele.NONE) throw new IllegalArgumentException("invalid allele prefix: " + prefix);
+		GroupIndex index = this.index;
+		List<Allele> alleles = new ArrayList<>();
+		index.trie.forEachUnder(packed, id -> alleles.add(index.alleles[id]));
+		return alleles;
+	}
+
+	/**
+	 * Immutable allele/group index, replaced as a whole on rebuild.  Alleles are numbered densely by an
+	 * AlleleDictionary, with an AlleleTrie for prefix queries; the group of each allele is kept in a byte array indexed by allele id (with 
+	 * UNKNOWN_GROUP for alleles of unknown group), and the members of each group as an int array of
+	 * allele ids indexed by group.  Alleles are listed (and group members kept) in glstring order, as 
+	 * ids are in packed order.
+	 */
+	private class GroupIndex {
+
+		final AlleleDictionary dictionary;
+		final AlleleTrie trie;
+		final Allele[] alleles;
+		final byte[] groups;
+		final int[][] members;
+		final int[] order;
+
+		GroupIndex(Map<String, Byte> alleleGroups) {
+			dictionary = new AlleleDictionary(alleleGroups.keySet());
+			trie = new AlleleTrie(dictionary);
+			int size = dictionary.size();
+			alleles = new Allele[size];
+			groups = new byte[size];
+			int[] counts = new int[Byte.MAX_VALUE + 1];
+			int groupCount = 0;
+			for (int id = 0; id < size; id++) {
+				String allele = dictionary.name(id);
+				byte g = alleleGroups.get(allele);
+				alleles[id] = createAllele(allele);
+				groups[id] = g;
+				if (g != UNKNOWN_GROUP) {
+					counts[g]++;
+					groupCount = Math.max(groupCount, g + 1);
+				}
+			}
+			members = new int[groupCount][];
+			for (int g = 0; g < groupCount; g++) {
+				members[g] = new int[counts[g]];
+				counts[g] = 0;
+			}
+			order = IntStream.range(0, size).boxed()
+					.sorted(Comparator.comparing(id -> dictionary.name(id)))
+					.mapToInt(Integer::intValue)
+					.toArray();
+			for (int id : order) {
+				byte g = groups[id];
+				if (g != UNKNOWN_GROUP) members[g][counts[g]++] = id;
+			}
+		}
+
+		List<Allele> getMembers(int group) {
+			final int[] ids = members[group];
+			return new AbstractList<Allele>() {
+				@Override public Allele get(int index) {
+					return alleles[ids[index]];
+				}
+				@Override public int size() {
+					return ids.length;
+				}
+			};
+		}
+
 	}
 
 }
@@ -16,5 +16,10 @@ public interface FrequencyService {
     double getFrequency(DetailRace race, String allele);
 
 	void buildFrequencyMap();
+
+	/**
+	 * @return number of times the frequency map has been built, for invalidating values derived from it
+	 */
+	int getVersion();
     
 }
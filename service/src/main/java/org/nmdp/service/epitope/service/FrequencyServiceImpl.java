@@ -1,12 +1,16 @@
 package org.nmdp.service.epitope.service;
 
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import org.nmdp.service.epitope.db.DbiManager;
 import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.gl.AlleleDictionary;
+import org.nmdp.service.epitope.gl.PackedAllele;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.BaselineAlleleFrequency;
+import org.nmdp.service.epitope.jfr.RebuildEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,7 +19,8 @@ import com.google.inject.Inject;
 public class FrequencyServiceImpl implements FrequencyService {
 
     private Double baselineFrequency;
-    Map<DetailRace, Map<String, Double>> raceAlleleFreqMap;
+    volatile Map<DetailRace, FrequencyIndex> raceFrequencies = new EnumMap<>(DetailRace.class);
+    private volatile int version = 0;
 	private DbiManager dbi;
 	Logger logger = LoggerFactory.getLogger(getClass());
     
@@ -28,21 +33,41 @@ public class FrequencyServiceImpl implements FrequencyService {
 	@Override
 	public void buildFrequencyMap() {
 		logger.info("building frequency map");
+		RebuildEvent event = new RebuildEvent();
+		event.begin();
 		Map<DetailRace, Map<String, Double>> map = dbi.getRaceAlleleFrequencyMap();
 		List<String> alleles = dbi.getAllelesForLocus("HLA-DPB1");
+		Map<DetailRace, FrequencyIndex> raceFrequencies = new EnumMap<>(DetailRace.class);
 		for (Map.Entry<DetailRace, Map<String, Double>> entry: map.entrySet()) {
-			Map.Entry<DetailRace, Map<String, Double>> e = entry;
-			alleles.stream().forEach(a -> addAlleleToMap(e.getValue(), a));
+			Map<String, Double> frequencies = new HashMap<>(entry.getValue());
+			AlleleDictionary arsDictionary = new AlleleDictionary(entry.getValue().keySet());
+			alleles.stream().forEach(a -> addAlleleToMap(frequencies, arsDictionary, a));
+			raceFrequencies.put(entry.getKey(), new FrequencyIndex(frequencies));
+		}
+		this.raceFrequencies = raceFrequencies;
+		// map is only built by the initializer thread
+		version++;
+		if (event.shouldCommit()) {
+			event.map = "frequency";
+			event.entries = raceFrequencies.values().stream().mapToInt(i -> i.dictionary.size()).sum();
+			event.commit();
 		}
-		this.raceAlleleFreqMap = map;
 		logger.debug("done building frequency map");
 	}
 	
     /**
 	 * Add the ARS version of the allele to the frequency map
 	 */
-	private void addAlleleToMap(Map<String, Double> map, String allele) {
+	private void addAlleleToMap(Map<String, Double> map, AlleleDictionary arsDictionary, String allele) {
 		if (map.containsKey(allele)) return;
+		long packed = PackedAllele.parse(allele);
+		if (packed != PackedAllele.NONE) {
+			if (PackedAllele.fields(packed) <= 2) return;
+			int id = arsDictionary.id(PackedAllele.truncate(packed, 2));
+			Double arsFreq = (id < 0) ? null : map.get(arsDictionary.name(id));
+			if (null != arsFreq) map.put(allele, arsFreq);
+			return;
+		}
 		int to = 0;
 		for (int i = 0; i < 2; i++) {
 			to = allele.indexOf(":", to+1);
@@ -57,10 +82,39 @@ public class FrequencyServiceImpl implements FrequencyService {
      */
     @Override
     public double getFrequency(DetailRace race, String allele) {
-    	if (!raceAlleleFreqMap.containsKey(race)) {
+    	FrequencyIndex index = raceFrequencies.get(race);
+    	if (null == index) {
     		return baselineFrequency;
     	}
-    	return Optional.ofNullable(raceAlleleFreqMap.get(race).get(allele)).orElse(0.0);
+    	int id = index.dictionary.id(allele);
+    	return (id < 0) ? 0.0 : index.frequencies[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getVersion() {
+    	return version;
+    }
+
+    /**
+     * Frequencies of the alleles of a race, indexed by allele id
+     */
+    static class FrequencyIndex {
+
+    	final AlleleDictionary dictionary;
+    	final double[] frequencies;
+
+    	FrequencyIndex(Map<String, Double> alleleFrequencies) {
+    		dictionary = new AlleleDictionary(alleleFrequencies.keySet());
+    		frequencies = new double[dictionary.size()];
+    		for (int id = 0; id < frequencies.length; id++) {
+    			Double frequency = alleleFrequencies.get(dictionary.name(id));
+    			frequencies[id] = (null == frequency) ? 0.0 : frequency;
+    		}
+    	}
+
     }
 
 }
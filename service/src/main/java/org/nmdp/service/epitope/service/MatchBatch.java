@@ -0,0 +1,82 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.nmdp.service.epitope.service.MatchServiceImpl.Typing;
+import org.nmdp.service.epitope.service.MatchServiceImpl.TypingKey;
+
+/**
+ * Scope of a batch of matches on the calling thread, between start() and stop(), within which the match 
+ * service resolves each distinct typing (gl string and race) once, however many matches of the batch it
+ * appears in.  Typings are only kept for the batch, so no cache needs to be configured for them.
+ */
+public class MatchBatch {
+
+	static final ThreadLocal<MatchBatch> tl = new ThreadLocal<MatchBatch>();
+
+	private final Map<TypingKey, Typing> typings = new HashMap<>();
+
+	/**
+	 * start a batch of matches on this thread
+	 * @return the batch
+	 */
+	public static MatchBatch start() {
+		MatchBatch batch = new MatchBatch();
+		tl.set(batch);
+		return batch;
+	}
+
+	/**
+	 * @return batch of matches on this thread, or null if not started
+	 */
+	public static MatchBatch current() {
+		return tl.get();
+	}
+
+	/**
+	 * stop the batch of matches on this thread, releasing its typings
+	 */
+	public static void stop() {
+		tl.remove();
+	}
+
+	/**
+	 * @return number of distinct typings resolved in the batch
+	 */
+	public int size() {
+		return typings.size();
+	}
+
+	Typing getTyping(TypingKey key, Function<TypingKey, Typing> resolver) {
+		return typings.computeIfAbsent(key, resolver);
+	}
+
+	private MatchBatch() {
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.service;
+
+/**
+ * Counters of the work done by the match service, accumulated on the calling thread between start() 
+ * and stop(), so that callers can report the cost of each request.
+ */
+public class MatchCost {
+
+	static final ThreadLocal<MatchCost> tl = new ThreadLocal<MatchCost>();
+
+	long alleles;
+	long genotypes;
+	long recipientPairs;
+	long donorPairs;
+	long comparisons;
+	long frequencyLookups;
+
+	/**
+	 * start accumulating the cost of matches on this thread
+	 * @return the counters, updated by each match until stop() is called
+	 */
+	public static MatchCost start() {
+		MatchCost cost = new MatchCost();
+		tl.set(cost);
+		return cost;
+	}
+
+	/**
+	 * @return counters accumulating on this thread, or null if not started
+	 */
+	public static MatchCost current() {
+		return tl.get();
+	}
+
+	/**
+	 * stop accumulating the cost of matches on this thread
+	 */
+	public static void stop() {
+		tl.remove();
+	}
+
+	/**
+	 * add the counters of another cost to this one
+	 */
+	public void add(MatchCost cost) {
+		alleles += cost.alleles;
+		genotypes += cost.genotypes;
+		recipientPairs += cost.recipientPairs;
+		donorPairs += cost.donorPairs;
+		comparisons += cost.comparisons;
+		frequencyLookups += cost.frequencyLookups;
+	}
+
+	/**
+	 * @return number of alleles (after allele code expansion) of both typings
+	 */
+	public long getAlleles() {
+		return alleles;
+	}
+
+	/**
+	 * @return number of genotypes of both typings
+	 */
+	public long getGenotypes() {
+		return genotypes;
+	}
+
+	/**
+	 * @return number of allele pairs enumerated for the recipient
+	 */
+	public long getRecipientPairs() {
+		return recipientPairs;
+	}
+
+	/**
+	 * @return number of allele pairs enumerated for the donor
+	 */
+	public long getDonorPairs() {
+		return donorPairs;
+	}
+
+	/**
+	 * @return number of recipient and donor allele pairs compared while grading
+	 */
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	/**
+	 * @return number of allele frequencies looked up
+	 */
+	public long getFrequencyLookups() {
+		return frequencyLookups;
+	}
+
+	@Override
+	public String toString() {
+		return "alleles=" + alleles + ", genotypes=" + genotypes + ", recipientPairs=" + recipientPairs 
+				+ ", donorPairs=" + donorPairs + ", comparisons=" + comparisons + ", frequencyLookups=" + frequencyLookups;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+/**
+ * Thrown when a match exceeds its complexity budget or deadline.
+ */
+public class MatchLimitException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * limit that was exceeded
+	 */
+	public enum Reason {
+		/**
+		 * the estimated number of pairs to evaluate exceeds the configured budget
+		 */
+		COMPLEXITY,
+		/**
+		 * the match did not complete before the configured deadline
+		 */
+		DEADLINE
+	}
+
+	private final Reason reason;
+
+	/**
+	 * construct exception with the specified reason and message
+	 * @param reason limit that was exceeded
+	 * @param message message of the exception
+	 */
+	public MatchLimitException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+
+	/**
+	 * @return limit that was exceeded
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,158 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.service;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.function.Function;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Timers and histograms for each stage of the match pipeline: allele code expansion (on each miss of the
+ * expansion cache of TypingPipeline), genotype list resolution, allele pair enumeration, 
+ * frequency lookup and grading (including normalization), and the number of allele pairs enumerated 
+ * for each side.  Enumeration and frequency lookup are recorded once per side of each match, with 
+ * the time spent looking up frequencies excluded from the enumeration time.  Calls to each coalesced 
+ * stage (see SingleFlight), genotype list resolution and allele pair distribution, are metered along with 
+ * those coalesced, and the fraction coalesced over the last minute is reported as its coalescing rate.
+ */
+@Singleton
+public class MatchMetrics {
+
+	private final Timer expandAlleleCodes;
+	private final Timer genotypeListResolution;
+	private final Timer pairEnumeration;
+	private final Timer frequencyLookup;
+	private final Timer grading;
+	private final Histogram recipientPairs;
+	private final Histogram donorPairs;
+	private final Meter genotypeListRequests;
+	private final Meter genotypeListCoalesced;
+	private final Meter distributionRequests;
+	private final Meter distributionCoalesced;
+
+	@Inject
+	public MatchMetrics(MetricRegistry registry) {
+		this.expandAlleleCodes = registry.timer(name(MatchService.class, "transform", "expandAlleleCodes"));
+		this.genotypeListResolution = registry.timer(name(MatchService.class, "genotypeListResolution"));
+		this.pairEnumeration = registry.timer(name(MatchService.class, "pairEnumeration"));
+		this.frequencyLookup = registry.timer(name(MatchService.class, "frequencyLookup"));
+		this.grading = registry.timer(name(MatchService.class, "grading"));
+		this.recipientPairs = registry.histogram(name(MatchService.class, "pairs", "recipient"));
+		this.donorPairs = registry.histogram(name(MatchService.class, "pairs", "donor"));
+		this.genotypeListRequests = registry.meter(name(MatchService.class, "singleFlight", "genotypeList", "requests"));
+		this.genotypeListCoalesced = registry.meter(name(MatchService.class, "singleFlight", "genotypeList", "coalesced"));
+		registerCoalescingRate(registry, "genotypeList", genotypeListRequests, genotypeListCoalesced);
+		this.distributionRequests = registry.meter(name(MatchService.class, "singleFlight", "distribution", "requests"));
+		this.distributionCoalesced = registry.meter(name(MatchService.class, "singleFlight", "distribution", "coalesced"));
+		registerCoalescingRate(registry, "distribution", distributionRequests, distributionCoalesced);
+	}
+
+	private static void registerCoalescingRate(MetricRegistry registry, String stage, Meter requests, Meter coalesced) {
+		registry.register(name(MatchService.class, "singleFlight", stage, "coalescingRate"), new RatioGauge() {
+			@Override protected Ratio getRatio() {
+				return Ratio.of(coalesced.getOneMinuteRate(), requests.getOneMinuteRate());
+			}
+		});
+	}
+
+	/**
+	 * @return function that records the duration of each application of the given function
+	 */
+	public static <T, R> Function<T, R> timed(Timer timer, Function<T, R> function) {
+		return t -> {
+			final Timer.Context context = timer.time();
+			try {
+				return function.apply(t);
+			} finally {
+				context.stop();
+			}
+		};
+	}
+
+	public Timer getExpandAlleleCodes() {
+		return expandAlleleCodes;
+	}
+
+	public Timer getGenotypeListResolution() {
+		return genotypeListResolution;
+	}
+
+	public Timer getPairEnumeration() {
+		return pairEnumeration;
+	}
+
+	public Timer getFrequencyLookup() {
+		return frequencyLookup;
+	}
+
+	public Timer getGrading() {
+		return grading;
+	}
+
+	public Histogram getRecipientPairs() {
+		return recipientPairs;
+	}
+
+	public Histogram getDonorPairs() {
+		return donorPairs;
+	}
+
+	/**
+	 * @return meter of the calls to coalesced genotype list resolution
+	 */
+	public Meter getGenotypeListRequests() {
+		return genotypeListRequests;
+	}
+
+	/**
+	 * @return meter of the calls to coalesced genotype list resolution that waited for a resolution in flight
+	 */
+	public Meter getGenotypeListCoalesced() {
+		return genotypeListCoalesced;
+	}
+
+	/**
+	 * @return meter of the calls to coalesced allele pair distribution
+	 */
+	public Meter getDistributionRequests() {
+		return distributionRequests;
+	}
+
+	/**
+	 * @return meter of the calls to coalesced allele pair distribution that waited for a computation in flight
+	 */
+	public Meter getDistributionCoalesced() {
+		return distributionCoalesced;
+	}
+
+}
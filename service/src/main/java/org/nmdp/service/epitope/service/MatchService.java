@@ -51,4 +51,26 @@ public interface MatchService {
 	 * @return the MatchResult of the recipient and donor
 	 */
 	MatchResult getMatch(String recipientGl, DetailRace recipientRace, String donorGl, DetailRace donorRace);
+
+	/**
+	 * Determines only the match grade based on the given recipient and donor info, evaluating allele pairs
+	 * only until the grade can no longer change.  Probabilities are not reported.
+	 * @param recipientGl GenotypeList object of the recipient
+	 * @param recipientRace DetailRace of the recipient
+	 * @param donorGl GenotypeList object of the donor
+	 * @param donorRace DetailRace of the donor
+	 * @return the MatchResult of the recipient and donor, with match grade and number of pairs evaluated
+	 */
+	MatchResult getMatchGrade(GenotypeList recipientGl, DetailRace recipientRace, GenotypeList donorGl, DetailRace donorRace);
+
+	/**
+	 * Determines only the match grade based on the given recipient and donor info, evaluating allele pairs
+	 * only until the grade can no longer change.  Probabilities are not reported.
+	 * @param recipientGl Glstring of the recipient
+	 * @param recipientRace DetailRace of the recipient
+	 * @param donorGl Glstring of the donor
+	 * @param donorRace DetailRace of the donor
+	 * @return the MatchResult of the recipient and donor, with match grade and number of pairs evaluated
+	 */
+	MatchResult getMatchGrade(String recipientGl, DetailRace recipientRace, String donorGl, DetailRace donorRace);
 }
@@ -23,6 +23,9 @@
 
 package org.nmdp.service.epitope.service;
 
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import org.nmdp.gl.*;
 import org.nmdp.gl.client.GlClient;
@@ -30,21 +33,32 @@ import org.nmdp.gl.client.GlClientException;
 import org.nmdp.service.epitope.domain.DetailRace;
 import org.nmdp.service.epitope.domain.MatchGrade;
 import org.nmdp.service.epitope.domain.MatchResult;
+import org.nmdp.service.epitope.gl.transform.GlStringFunctions;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.BaselineAlleleFrequency;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.FrequencyCacheSize;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.GenotypeListResolver;
-import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchGlstringTransformer;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchComplexityBudget;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchDeadlineMillis;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchLimitMode;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchProbabilityPrecision;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchPruneThreshold;
+import org.nmdp.service.epitope.guice.ConfigurationBindings.MatchResultCacheSize;
+import org.nmdp.service.epitope.jfr.CacheEvent;
+import org.nmdp.service.epitope.jfr.MatchEvent;
 import org.nmdp.service.epitope.trace.Trace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.nmdp.service.epitope.domain.DetailRace.UNK;
 import static org.nmdp.service.epitope.domain.MatchGrade.*;
+import static org.nmdp.service.epitope.service.MatchLimitException.Reason.COMPLEXITY;
+import static org.nmdp.service.epitope.service.MatchLimitException.Reason.DEADLINE;
 
 /**
  * Primary implementation of MatchService interface
@@ -55,27 +69,54 @@ public class MatchServiceImpl implements MatchService {
 	private GlClient glClient;
 	private Function<String, GenotypeList> genotypeListResolver;
     private FrequencyService freqService;
-	private Function<String, String> glStringTransformer;
 	Logger logger = LoggerFactory.getLogger(getClass());
 	private long matchPrecision;
+	/**
+	 * grades that may result from the comparison of a single recipient and donor allele pair 
+	 */
+	static final Set<MatchGrade> PAIR_GRADES = EnumSet.of(MATCH, PERMISSIVE, HVG_NONPERMISSIVE, GVH_NONPERMISSIVE, UNKNOWN);
+	private long complexityBudget;
+	private long deadlineMillis;
+	private LimitMode limitMode;
+	private double pruneThreshold;
+	private MatchMetrics metrics;
+	private DatasetVersion datasetVersion;
+	private Cache<TypingKey, FrequencyVector> frequencyVectors;
+	private SingleFlight<TypingKey, AllelePairDistribution> distributions;
+	private Cache<ResultKey, CachedResult> results;
 
 	@Inject
 	public MatchServiceImpl(
 			EpitopeService epitopeService,
 			@GenotypeListResolver Function<String, GenotypeList> genotypeListResolver,
 			GlClient glClient,
-			@MatchGlstringTransformer Function<String, String> glStringTransformer,
 			FrequencyService freqService,
 			@BaselineAlleleFrequency Double baselineFreq,
-			@MatchProbabilityPrecision double matchPrecision)
+			@MatchProbabilityPrecision double matchPrecision,
+			@MatchComplexityBudget long complexityBudget,
+			@MatchDeadlineMillis long deadlineMillis,
+			@MatchLimitMode LimitMode limitMode,
+			@MatchPruneThreshold double pruneThreshold,
+			@FrequencyCacheSize long frequencyCacheSize,
+			@MatchResultCacheSize long resultCacheSize,
+			MatchMetrics metrics)
 	{
 		this.epitopeService = epitopeService;
 		this.genotypeListResolver = genotypeListResolver;
 		this.glClient = glClient;
-		// apply g groups and trim alleles to ars equivalents when matching 
-		this.glStringTransformer = glStringTransformer;
         this.freqService = freqService;
 		this.matchPrecision = (long)Math.pow(10, 0 - Math.log10(matchPrecision));
+		this.complexityBudget = complexityBudget;
+		this.deadlineMillis = deadlineMillis;
+		this.limitMode = limitMode;
+		this.pruneThreshold = pruneThreshold;
+		this.metrics = metrics;
+		this.datasetVersion = new DatasetVersion(epitopeService, freqService);
+		this.frequencyVectors = CacheBuilder.newBuilder().maximumSize(frequencyCacheSize)
+				.removalListener(CacheEvent.<TypingKey, FrequencyVector>evictions("frequencyVectors")).build();
+		this.distributions = new SingleFlight<>(metrics.getDistributionRequests(), metrics.getDistributionCoalesced());
+		this.results = CacheBuilder.newBuilder().maximumSize(resultCacheSize)
+				.removalListener(CacheEvent.<ResultKey, CachedResult>evictions("results")).build();
 	}
 	
 	MatchGrade getMatchGrade(AllelePair recipAllelePair, AllelePair donorAllelePair) {
@@ -83,6 +124,13 @@ public class MatchServiceImpl implements MatchService {
 		if (recipAllelePair.typeEquals(donorAllelePair)) {
 			return MatchGrade.MATCH;
 		}
+		return getGroupMatchGrade(recipAllelePair, donorAllelePair);
+	}
+
+	/**
+	 * @return match grade of allele pairs based only on their immunogenicity groups (not checking for exact match)
+	 */
+	MatchGrade getGroupMatchGrade(AllelePair recipAllelePair, AllelePair donorAllelePair) {
 		Integer recipLow = recipAllelePair.getLowG();
 		Integer recipHi = recipAllelePair.getHighG();
 		Integer donorLow = donorAllelePair.getLowG();
@@ -123,9 +171,9 @@ public class MatchServiceImpl implements MatchService {
 	{
 		// fixme g-group alleles are coalesced into a single allele name by the glstringfilter, 
 		// which means their frequencies aren't counted separately
-		GenotypeList rgl = genotypeListResolver.apply(glStringTransformer.apply(recipientGl));
-		GenotypeList dgl = genotypeListResolver.apply(glStringTransformer.apply(donorGl));
-		return getMatch(rgl, recipientRace, dgl, donorRace);
+		Typing recipient = getTyping(recipientGl, recipientRace);
+		Typing donor = getTyping(donorGl, donorRace);
+		return getMatch(recipient, donor, false);
 	}
 
 	/**
@@ -135,30 +183,285 @@ public class MatchServiceImpl implements MatchService {
 	public MatchResult getMatch(GenotypeList recipientGl, DetailRace recipRace,
 			GenotypeList donorGl, DetailRace donorRace) 
 	{
-		if (recipRace == null) recipRace = UNK;
-		if (donorRace == null) donorRace = UNK;
-		if (Trace.isEnabled()) Trace.setContext("r:");
-		Map<AllelePair, Double> ralps = getAllelePairs(recipientGl, recipRace);
-        if (Trace.isEnabled()) Trace.setContext("d:");
-		Map<AllelePair, Double> dalps = getAllelePairs(donorGl, donorRace);
-        if (Trace.isEnabled()) Trace.setContext("m:");
-		return getMatch(ralps, dalps);
-	}
-
-    private String getMatchTrace(AllelePair rp, double rprob, AllelePair dp, double dprob, MatchGrade mg, Double p) {
-        StringBuffer sb = new StringBuffer("r:")
-            .append(rp.getA1().getGlstring()).append("(g:").append(rp.getG1()).append(")+")
-            .append(rp.getA2().getGlstring()).append("(g:").append(rp.getG2()).append("):p:").append(rprob)
-            .append(",d:")
-            .append(dp.getA1().getGlstring()).append("(g:").append(dp.getG1()).append(")+")
-            .append(dp.getA2().getGlstring()).append("(g:").append(dp.getG2()).append("):p:").append(dprob)
-            .append(",m:")
-            .append(mg)
-            .append("(p:")
-            .append(p)
-            .append(")");
-        return sb.toString();
-    }
+		return getMatch(recipientGl, recipRace, donorGl, donorRace, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult getMatchGrade(String recipientGl, DetailRace recipientRace,
+			String donorGl, DetailRace donorRace) 
+	{
+		Typing recipient = getTyping(recipientGl, recipientRace);
+		Typing donor = getTyping(donorGl, donorRace);
+		return getMatch(recipient, donor, true);
+	}
+
+	/**
+	 * A typing to match: its genotype list and race, along with the distribution of its allele pairs once 
+	 * computed by a match of it (for typings shared by the matches of a batch).  Typings are confined to 
+	 * the thread matching them.
+	 */
+	static class Typing {
+		final GenotypeList gl;
+		final DetailRace race;
+		AllelePairDistribution distribution;
+		Typing(GenotypeList gl, DetailRace race) {
+			this.gl = gl;
+			this.race = (null == race) ? UNK : race;
+		}
+	}
+
+	/**
+	 * Resolve the typing of the gl string.  Within a batch of matches (see MatchBatch), typings are memoized 
+	 * by gl string and race, and their distributions are computed by the first match of them (under the 
+	 * deadline of that match) and reused by later ones, so that typings repeated within the batch are 
+	 * resolved once (unless tracing, which records the steps of each match).
+	 */
+	private Typing getTyping(String glstring, DetailRace race) {
+		MatchBatch batch = MatchBatch.current();
+		if (null == batch || Trace.isEnabled()) return new Typing(getGenotypeList(glstring), race);
+		return batch.getTyping(new TypingKey(glstring, (null == race) ? UNK : race), k -> new Typing(getGenotypeList(k.glstring), k.race));
+	}
+
+	/**
+	 * resolve the genotype list of the gl string, normalized for matching (see TypingPipeline)
+	 */
+	private GenotypeList getGenotypeList(String glstring) {
+		final Timer.Context context = metrics.getGenotypeListResolution().time();
+		try {
+			return genotypeListResolver.apply(glstring);
+		} finally {
+			context.stop();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult getMatchGrade(GenotypeList recipientGl, DetailRace recipRace,
+			GenotypeList donorGl, DetailRace donorRace) 
+	{
+		return getMatch(recipientGl, recipRace, donorGl, donorRace, true);
+	}
+
+	private MatchResult getMatch(GenotypeList recipientGl, DetailRace recipRace,
+			GenotypeList donorGl, DetailRace donorRace, boolean gradeOnly) 
+	{
+		return getMatch(new Typing(recipientGl, recipRace), new Typing(donorGl, donorRace), gradeOnly);
+	}
+
+	private MatchResult getMatch(Typing recipient, Typing donor, boolean gradeOnly) {
+		MatchCost cost = MatchCost.current();
+		if (null == cost) cost = new MatchCost();
+		Trace trace = Trace.current();
+		MatchEvent event = new MatchEvent();
+		event.begin();
+		try {
+			return getMatch(recipient, donor, gradeOnly, cost, trace, event);
+		} finally {
+			if (event.shouldCommit()) {
+				event.recipientRace = recipient.race.name();
+				event.donorRace = donor.race.name();
+				event.gradeOnly = gradeOnly;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Full matches are cached by the typings of both sides, in either direction (see ResultKey), for the current 
+	 * version of the reference data, unless tracing (which records the steps of each match) or a limit was exceeded 
+	 * (since the deadline depends on load).  Grade-only results are not cached, since they depend on the order in 
+	 * which pairs are evaluated.  Results served from the cache evaluated no pairs (see fromCache).
+	 */
+	private MatchResult getMatch(Typing recipient, Typing donor, boolean gradeOnly, MatchCost cost, Trace trace, MatchEvent event) {
+		if (gradeOnly || null != trace) return computeMatch(recipient, donor, gradeOnly, cost, trace, event);
+		long version = datasetVersion.getAsLong();
+		ResultKey key = new ResultKey(new TypingKey(recipient.gl.getGlstring(), recipient.race), 
+				new TypingKey(donor.gl.getGlstring(), donor.race));
+		CachedResult cached = results.getIfPresent(key);
+		if (null != cached && cached.version == version) {
+			event.cached = true;
+			return fromCache(cached.result, key.reversed);
+		}
+		CacheEvent load = new CacheEvent();
+		load.begin();
+		MatchResult result = computeMatch(recipient, donor, false, cost, null, event);
+		if (null == event.limit) {
+			results.put(key, new CachedResult(version, key.reversed ? reverse(result) : result));
+			load.loaded("results", (null == cached) ? CacheEvent.LOAD : CacheEvent.RELOAD, key);
+		}
+		return result;
+	}
+
+	private MatchResult computeMatch(Typing recipient, Typing donor, boolean gradeOnly, MatchCost cost, Trace trace, MatchEvent event) {
+		GenotypeList recipientGl = recipient.gl;
+		DetailRace recipRace = recipient.race;
+		GenotypeList donorGl = donor.gl;
+		DetailRace donorRace = donor.race;
+		Locus dpb1 = getDpb1Locus();
+		long complexity = getComplexity(dpb1, recipientGl, donorGl);
+		if (complexity > complexityBudget) {
+			event.limit = COMPLEXITY.name();
+			return getLimitedMatch(new MatchLimitException(COMPLEXITY, 
+					"match complexity (" + complexity + ") exceeds budget (" + complexityBudget + ")"), 
+					dpb1, recipientGl, recipRace, donorGl, donorRace, trace);
+		}
+		Deadline deadline = new Deadline(deadlineMillis);
+		try {
+			if (null != trace) trace.setContext(Trace.Context.RECIPIENT);
+			AllelePairDistribution ralps = getAllelePairDistribution(recipient, deadline, cost, trace);
+			event.recipientPairs = ralps.getProbabilities().size();
+			cost.recipientPairs += event.recipientPairs;
+			metrics.getRecipientPairs().update(event.recipientPairs);
+	        if (null != trace) trace.setContext(Trace.Context.DONOR);
+			AllelePairDistribution dalps = getAllelePairDistribution(donor, deadline, cost, trace);
+			event.donorPairs = dalps.getProbabilities().size();
+			cost.donorPairs += event.donorPairs;
+			metrics.getDonorPairs().update(event.donorPairs);
+	        if (null != trace) trace.setContext(Trace.Context.MATCH);
+	        Double discarded = (pruneThreshold > 0.0) ? getDiscardedBound(ralps, dalps) : null;
+	        final Timer.Context context = metrics.getGrading().time();
+	        try {
+				MatchResult result = gradeOnly 
+						? getMatchGrade(ralps.getProbabilities(), dalps.getProbabilities(), discarded, deadline, trace) 
+						: getMatch(ralps.getProbabilities(), dalps.getProbabilities(), discarded, deadline, trace);
+				// grade-only matches may stop before comparing all pairs
+				cost.comparisons += result.getPairsEvaluated();
+				return result;
+	        } finally {
+	        	context.stop();
+	        }
+		} catch (MatchLimitException e) {
+			event.limit = e.getReason().name();
+			return getLimitedMatch(e, dpb1, recipientGl, recipRace, donorGl, donorRace, trace);
+		}
+	}
+
+	/**
+	 * @return result of the match in the reverse direction (with the donor as recipient), which is the same but for 
+	 * host vs graft and graft vs host non-permissive mismatches, which are swapped
+	 */
+	static MatchResult reverse(MatchResult result) {
+		MatchGrade grade = result.getMatchGrade();
+		if (grade == HVG_NONPERMISSIVE) grade = GVH_NONPERMISSIVE;
+		else if (grade == GVH_NONPERMISSIVE) grade = HVG_NONPERMISSIVE;
+		return new MatchResult(
+				result.getMatchProbability(),
+				result.getPermissiveMismatchProbability(),
+				result.getGvhNonPermissiveMismatchProbability(),
+				result.getHvgNonPermissiveMismatchProbability(),
+				result.getUnknownProbability(),
+				grade,
+				result.getPairsEvaluated(),
+				result.getDiscardedProbability());
+	}
+
+	/**
+	 * @return copy of a cached result in the direction of the match (reversed or not), with no pairs evaluated, 
+	 * since none were for this match
+	 */
+	static MatchResult fromCache(MatchResult result, boolean reversed) {
+		MatchResult r = reversed ? reverse(result) : result;
+		return new MatchResult(
+				r.getMatchProbability(),
+				r.getPermissiveMismatchProbability(),
+				r.getGvhNonPermissiveMismatchProbability(),
+				r.getHvgNonPermissiveMismatchProbability(),
+				r.getUnknownProbability(),
+				r.getMatchGrade(),
+				0L,
+				r.getDiscardedProbability());
+	}
+
+	/**
+	 * Bound on the error of each outcome probability due to pruning: the total variation distance between
+	 * the full and pruned joint distributions of recipient and donor pairs, 1 - (1 - dr) * (1 - dd), where 
+	 * dr and dd are the masses discarded from each side (rounded up to the match precision).
+	 */
+	Double getDiscardedBound(AllelePairDistribution ralps, AllelePairDistribution dalps) {
+		double bound = 1.0 - (1.0 - ralps.getDiscarded()) * (1.0 - dalps.getDiscarded());
+		return Math.ceil(bound * matchPrecision) / matchPrecision;
+	}
+
+	/**
+	 * handle a match that exceeded a limit, according to the limit mode
+	 */
+	private MatchResult getLimitedMatch(MatchLimitException e, Locus dpb1, 
+			GenotypeList recipientGl, DetailRace recipRace, GenotypeList donorGl, DetailRace donorRace, Trace trace) 
+	{
+		if (limitMode != LimitMode.GROUP_ONLY) throw e;
+		logger.debug("falling back to group-only match: " + e.getMessage());
+		if (null != trace) {
+			trace.setContext(Trace.Context.MATCH);
+			trace.limited(e.getMessage());
+		}
+		return getGroupMatch(dpb1, recipientGl, recipRace, donorGl, donorRace);
+	}
+
+	/**
+	 * Estimate the number of allele pair evaluations needed for a match, based on the number of alleles
+	 * of each haplotype (without enumerating pairs).  Each side contributes the sum over its genotypes of
+	 * the product of its haplotype allele counts, and matching evaluates every recipient pair against
+	 * every donor pair.
+	 */
+	long getComplexity(Locus dpb1, GenotypeList recipientGl, GenotypeList donorGl) {
+		long r = getComplexity(dpb1, recipientGl);
+		long d = getComplexity(dpb1, donorGl);
+		try {
+			return Math.addExact(Math.addExact(r, d), Math.multiplyExact(r, d));
+		} catch (ArithmeticException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	long getComplexity(Locus dpb1, GenotypeList gl) {
+		long complexity = 0;
+		for (Genotype g : gl.getGenotypes()) {
+			List<Haplotype> hl = g.getHaplotypes();
+			if (hl.isEmpty()) continue;
+			long c1 = getLocusAlleles(dpb1, hl.get(0)).count();
+			long c2 = getLocusAlleles(dpb1, hl.get(hl.size() - 1)).count();
+			complexity += c1 * c2;
+		}
+		return complexity;
+	}
+
+	/**
+	 * Cooperative deadline for a single match, checked periodically while enumerating pairs
+	 */
+	static class Deadline {
+		static final Deadline NONE = new Deadline(0);
+		static final int CHECK_INTERVAL = 1024;
+		private final long millis;
+		private final long expires;
+		private int count = 0;
+		/**
+		 * @param millis milliseconds until the deadline, no deadline if not positive
+		 */
+		Deadline(long millis) {
+			this.millis = millis;
+			this.expires = (millis > 0) ? System.nanoTime() + millis * 1000000L : 0;
+		}
+		void check() {
+			if (0 == millis || 0 != (++count % CHECK_INTERVAL)) return;
+			checkNow();
+		}
+		void checkNow() {
+			if (0 != millis && System.nanoTime() - expires > 0) {
+				throw new MatchLimitException(DEADLINE, "match exceeded deadline (" + millis + " ms)");
+			}
+		}
+		/**
+		 * @return nanoseconds until the deadline (none if passed), Long.MAX_VALUE if no deadline
+		 */
+		long remainingNanos() {
+			return (0 == millis) ? Long.MAX_VALUE : Math.max(0, expires - System.nanoTime());
+		}
+	}
 
     class DoubleContainer {
         double d = 0;
@@ -174,6 +477,10 @@ public class MatchServiceImpl implements MatchService {
 	 * @return
 	 */
 	MatchResult getMatch(Map<AllelePair, Double> ralps, Map<AllelePair, Double> dalps) {
+		return getMatch(ralps, dalps, null, Deadline.NONE, Trace.current());
+	}
+
+	MatchResult getMatch(Map<AllelePair, Double> ralps, Map<AllelePair, Double> dalps, Double discarded, Deadline deadline, Trace trace) {
 	    EnumMap<MatchGrade, DoubleContainer> pmap = new EnumMap<MatchGrade, DoubleContainer>(MatchGrade.class);
 	    for (MatchGrade grade : MatchGrade.values()) {
 	        pmap.put(grade, new DoubleContainer());
@@ -181,9 +488,10 @@ public class MatchServiceImpl implements MatchService {
 		MatchGrade grade = null;
 		for (Map.Entry<AllelePair, Double> rp : ralps.entrySet()) {
 			for (Map.Entry<AllelePair, Double> dp : dalps.entrySet()) {
+				deadline.check();
 				grade = getMatchGrade(rp.getKey(), dp.getKey());
 				double f = rp.getValue() * dp.getValue();
-				if (Trace.isEnabled()) Trace.add(getMatchTrace(rp.getKey(), rp.getValue(), dp.getKey(), dp.getValue(), grade, f));
+				if (null != trace) trace.comparison(rp.getKey(), rp.getValue(), dp.getKey(), dp.getValue(), grade, f);
 				pmap.get(grade).add(f);
 				//if (logger.isTraceEnabled()) {
                 //	logger.trace(grade + ":rp:" + rp + ",dp:" + dp + " -> " + rf + "*" + df + " -> " + (rf * df));
@@ -196,11 +504,93 @@ public class MatchServiceImpl implements MatchService {
 
         logger.debug("finished with: " + pmap);
 
-        boolean m = pmap.get(MATCH).get() > 0;
-		boolean p = pmap.get(PERMISSIVE).get() > 0;
-		boolean hvg = pmap.get(HVG_NONPERMISSIVE).get() > 0;
-		boolean gvh = pmap.get(GVH_NONPERMISSIVE).get() > 0;
-		boolean u = pmap.get(UNKNOWN).get() > 0;
+        Set<MatchGrade> observed = EnumSet.noneOf(MatchGrade.class);
+        pmap.forEach((g, dc) -> { if (dc.get() > 0) observed.add(g); });
+        grade = getMatchGrade(observed);
+
+		// return both probabilities and match grade
+		return new MatchResult(
+		        pmap.get(MATCH).get(),
+		        pmap.get(PERMISSIVE).get(),
+		        pmap.get(HVG_NONPERMISSIVE).get(),
+		        pmap.get(GVH_NONPERMISSIVE).get(),
+		        pmap.get(UNKNOWN).get(),
+		        grade,
+		        (long)ralps.size() * dalps.size(),
+		        discarded);
+	}
+
+	/**
+	 * Determine only the match grade, evaluating the most likely pairs first and stopping as soon as further 
+	 * pairs can no longer change the grade: either the grade is POTENTIAL (which no further outcome can change), 
+	 * or the unevaluated probability mass is too small for any unobserved outcome to survive rounding.  Outcomes
+	 * are observed under the same rounding as the full match, so the grade is that of the full match (up to the
+	 * order in which probabilities are summed).
+	 */
+	MatchResult getMatchGrade(Map<AllelePair, Double> ralps, Map<AllelePair, Double> dalps, Double discarded, Deadline deadline, Trace trace) {
+		List<Map.Entry<AllelePair, Double>> rl = sortByProbability(ralps);
+		List<Map.Entry<AllelePair, Double>> dl = sortByProbability(dalps);
+		double total = rl.stream().mapToDouble(e -> e.getValue()).sum() * dl.stream().mapToDouble(e -> e.getValue()).sum();
+		double remaining = total;
+		double[] mass = new double[MatchGrade.values().length];
+		Set<MatchGrade> observed = EnumSet.noneOf(MatchGrade.class);
+		long evaluated = 0;
+		pairs:
+		for (Map.Entry<AllelePair, Double> rp : rl) {
+			for (Map.Entry<AllelePair, Double> dp : dl) {
+				deadline.check();
+				MatchGrade grade = getMatchGrade(rp.getKey(), dp.getKey());
+				double f = rp.getValue() * dp.getValue();
+				if (null != trace) trace.comparison(rp.getKey(), rp.getValue(), dp.getKey(), dp.getValue(), grade, f);
+				evaluated++;
+				remaining -= f;
+				mass[grade.ordinal()] += f;
+				if (!observed.contains(grade) && isObserved(mass[grade.ordinal()], total)) {
+					observed.add(grade);
+					if (getMatchGrade(observed) == POTENTIAL) break pairs;
+				}
+				if (isSettled(mass, observed, remaining, total)) break pairs;
+			}
+		}
+		logger.debug("grade determined after " + evaluated + " of " + ((long)rl.size() * dl.size()) + " pairs: " + observed);
+		return new MatchResult(null, null, null, null, null, getMatchGrade(observed), evaluated, discarded);
+	}
+
+	private static List<Map.Entry<AllelePair, Double>> sortByProbability(Map<AllelePair, Double> alps) {
+		List<Map.Entry<AllelePair, Double>> list = new ArrayList<>(alps.entrySet());
+		list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+		return list;
+	}
+
+	/**
+	 * @return true if the outcome probability is non-zero once normalized and rounded
+	 */
+	private boolean isObserved(double mass, double total) {
+		return Math.round(mass / total * matchPrecision) > 0;
+	}
+
+	/**
+	 * @return true if no unobserved outcome can be observed, even if all remaining mass were assigned to it
+	 */
+	private boolean isSettled(double[] mass, Set<MatchGrade> observed, double remaining, double total) {
+		double r = Math.max(remaining, 0.0);
+		for (MatchGrade grade : PAIR_GRADES) {
+			if (!observed.contains(grade) && isObserved(mass[grade.ordinal()] + r, total)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param observed match grades of the allele pair comparisons with non-zero probability
+	 * @return the reported match grade
+	 */
+	MatchGrade getMatchGrade(Set<MatchGrade> observed) {
+		boolean m = observed.contains(MATCH);
+		boolean p = observed.contains(PERMISSIVE);
+		boolean hvg = observed.contains(HVG_NONPERMISSIVE);
+		boolean gvh = observed.contains(GVH_NONPERMISSIVE);
+		boolean u = observed.contains(UNKNOWN);
+		MatchGrade grade;
 		if (m) {
 			if (p || hvg || gvh || u) { grade = POTENTIAL; } 
 			else { grade = MATCH; }
@@ -218,15 +608,116 @@ public class MatchServiceImpl implements MatchService {
 		} else {
 			throw new RuntimeException("no recognized match grades possible");
 		}
+		return grade;
+	}
 
-		// return both probabilities and match grade
-		return new MatchResult(
-		        pmap.get(MATCH).get(),
-		        pmap.get(PERMISSIVE).get(),
-		        pmap.get(HVG_NONPERMISSIVE).get(),
-		        pmap.get(GVH_NONPERMISSIVE).get(),
-		        pmap.get(UNKNOWN).get(),
-		        grade);
+	/**
+	 * Allele pairs of one side that share the same pair of immunogenicity groups, represented by one of 
+	 * the pairs, and whether it is the only typing of the class.
+	 */
+	static class GroupClass {
+		AllelePair rep;
+		boolean single;
+		GroupClass(AllelePair rep, boolean single) {
+			this.rep = rep;
+			this.single = single;
+		}
+	}
+
+	/**
+	 * Determine the match grade without enumerating allele pairs or computing probabilities (the degraded 
+	 * mode for matches exceeding their limits).  Allele pairs are reduced to classes of equal immunogenicity 
+	 * groups, which determine every grade except MATCH, which is determined by the intersection of the 
+	 * haplotype alleles.  Alleles with zero frequency are dropped as in the full match, but unlike the 
+	 * full match, outcomes with a non-zero probability too small to survive rounding are still reported.
+	 */
+	MatchResult getGroupMatch(Locus dpb1, GenotypeList recipientGl, DetailRace recipRace, GenotypeList donorGl, DetailRace donorRace) {
+		List<List<Set<Allele>>> rgl = getHaplotypeAlleles(dpb1, recipientGl, recipRace);
+		List<List<Set<Allele>>> dgl = getHaplotypeAlleles(dpb1, donorGl, donorRace);
+		Set<MatchGrade> observed = EnumSet.noneOf(MatchGrade.class);
+		Collection<GroupClass> rcl = getGroupClasses(rgl, recipRace);
+		Collection<GroupClass> dcl = getGroupClasses(dgl, donorRace);
+		for (GroupClass rc : rcl) {
+			for (GroupClass dc : dcl) {
+				if (!(rc.single && dc.single && rc.rep.typeEquals(dc.rep))) {
+					observed.add(getGroupMatchGrade(rc.rep, dc.rep));
+				}
+			}
+		}
+		if (hasCommonTyping(rgl, dgl)) observed.add(MATCH);
+		MatchGrade grade = getMatchGrade(observed);
+		return new MatchResult(null, null, null, null, null, grade);
+	}
+
+	/**
+	 * @return the alleles of both haplotypes of each genotype, excluding alleles with zero frequency 
+	 * (unless it is the only allele of the haplotype)
+	 */
+	List<List<Set<Allele>>> getHaplotypeAlleles(Locus dpb1, GenotypeList gl, DetailRace race) {
+		List<List<Set<Allele>>> list = new ArrayList<>();
+		for (Genotype g : gl.getGenotypes()) {
+			List<Haplotype> hl = g.getHaplotypes();
+			if (hl.isEmpty()) throw new RuntimeException("no haplotypes found for gl: " + gl);
+			if (hl.size() > 2) throw new RuntimeException("only expecting 2 haplotypes for gl: " + gl);
+			List<Set<Allele>> pair = new ArrayList<>(2);
+			for (Haplotype h : Arrays.asList(hl.get(0), hl.get(hl.size() - 1))) {
+				Set<Allele> alleles = getLocusAlleles(dpb1, h).collect(Collectors.toCollection(LinkedHashSet::new));
+				if (alleles.size() > 1) alleles.removeIf(a -> 0.0 == freqService.getFrequency(race, a.getGlstring()));
+				pair.add(alleles);
+			}
+			list.add(pair);
+		}
+		return list;
+	}
+
+	private Collection<GroupClass> getGroupClasses(List<List<Set<Allele>>> gl, DetailRace race) {
+		Map<List<Integer>, GroupClass> classMap = new HashMap<>();
+		for (List<Set<Allele>> pair : gl) {
+			Map<Integer, List<Allele>> g1map = getGroupAlleles(pair.get(0));
+			Map<Integer, List<Allele>> g2map = getGroupAlleles(pair.get(1));
+			for (Map.Entry<Integer, List<Allele>> e1 : g1map.entrySet()) {
+				for (Map.Entry<Integer, List<Allele>> e2 : g2map.entrySet()) {
+					AllelePair ap = new AllelePair(e1.getValue().get(0), e1.getKey(), e2.getValue().get(0), e2.getKey(), race);
+					boolean single = e1.getValue().size() == 1 && e2.getValue().size() == 1;
+					List<Integer> key = Arrays.asList(ap.getLowG(), ap.getHighG());
+					GroupClass existing = classMap.get(key);
+					if (null == existing) {
+						classMap.put(key, new GroupClass(ap, single));
+					} else if (existing.single && !(single && existing.rep.typeEquals(ap))) {
+						existing.single = false;
+					}
+				}
+			}
+		}
+		return classMap.values();
+	}
+
+	private Map<Integer, List<Allele>> getGroupAlleles(Set<Allele> alleles) {
+		Map<Integer, List<Allele>> map = new HashMap<>();
+		for (Allele a : alleles) {
+			map.computeIfAbsent(epitopeService.getImmuneGroupForAllele(a), k -> new ArrayList<>()).add(a);
+		}
+		return map;
+	}
+
+	/**
+	 * @return true if any allele pair of the recipient is typed the same as an allele pair of the donor
+	 */
+	private boolean hasCommonTyping(List<List<Set<Allele>>> rgl, List<List<Set<Allele>>> dgl) {
+		for (List<Set<Allele>> rp : rgl) {
+			for (List<Set<Allele>> dp : dgl) {
+				if ((intersects(rp.get(0), dp.get(0)) && intersects(rp.get(1), dp.get(1)))
+						|| (intersects(rp.get(0), dp.get(1)) && intersects(rp.get(1), dp.get(0)))) 
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean intersects(Set<Allele> s1, Set<Allele> s2) {
+		return !Collections.disjoint(s1, s2);
 	}
 	
 	public Stream<Allele> getLocusAlleles(Locus locus, Haplotype h) {
@@ -236,14 +727,258 @@ public class MatchServiceImpl implements MatchService {
 	}
 	
 	
-    Map<AllelePair, Double> getAllelePairs(GenotypeList gl, DetailRace race) {
-		Locus dpb1;
+	private Locus getDpb1Locus() {
 		try {
-			dpb1 = glClient.createLocus("HLA-DPB1");
+			return glClient.createLocus("HLA-DPB1");
 		} catch (GlClientException e) {
 			throw new RuntimeException("unable to create DPB1 locus", e);
 		}
+	}
+
+    Map<AllelePair, Double> getAllelePairs(GenotypeList gl, DetailRace race) {
+    	return getAllelePairDistribution(gl, race, Deadline.NONE, new MatchCost(), Trace.current()).getProbabilities();
+    }
+
+    /**
+     * an allele of a haplotype along with its frequency (1.0 if it is the only allele of the haplotype)
+     */
+    static class AlleleFrequency {
+    	final Allele allele;
+    	final double frequency;
+    	AlleleFrequency(Allele allele, double frequency) {
+    		this.allele = allele;
+    		this.frequency = frequency;
+    	}
+    }
+
+    /**
+     * Alleles of a haplotype with non-zero frequency for a race, along with their total frequency before 
+     * pruning, and the alleles retained by pruning, with their total frequency and their groups.
+     */
+    static class FrequencyVector {
+    	final long version;
+    	final int alleles;
+    	final double total;
+    	final List<AlleleFrequency> retained;
+    	final double retainedTotal;
+    	final Integer[] groups;
+    	FrequencyVector(long version, int alleles, double total, List<AlleleFrequency> retained, Integer[] groups) {
+    		this.version = version;
+    		this.alleles = alleles;
+    		this.total = total;
+    		this.retained = retained;
+    		this.retainedTotal = getTotalFrequency(retained);
+    		this.groups = groups;
+    	}
+    }
+
+    /**
+     * key of a typing (an allele code or genotype list, by glstring) for a race
+     */
+    static class TypingKey {
+    	final String glstring;
+    	final DetailRace race;
+    	TypingKey(String glstring, DetailRace race) {
+    		this.glstring = glstring;
+    		this.race = race;
+    	}
+    	@Override
+    	public int hashCode() {
+    		return 31 * glstring.hashCode() + race.hashCode();
+    	}
+    	@Override
+    	public boolean equals(Object obj) {
+    		if (this == obj) return true;
+    		if (!(obj instanceof TypingKey)) return false;
+    		TypingKey other = (TypingKey) obj;
+    		return glstring.equals(other.glstring) && race == other.race;
+    	}
+    	@Override
+    	public String toString() {
+    		return glstring + " (" + race + ")";
+    	}
+    }
+
+    /**
+     * Key of a match result: the typings of both sides in canonical order (by glstring, then race), so that a 
+     * match and its reverse share a key, and whether the recipient is the second of them.
+     */
+    static class ResultKey {
+    	final TypingKey first;
+    	final TypingKey second;
+    	final boolean reversed;
+    	ResultKey(TypingKey recipient, TypingKey donor) {
+    		int c = recipient.glstring.compareTo(donor.glstring);
+    		this.reversed = (c == 0) ? recipient.race.compareTo(donor.race) > 0 : c > 0;
+    		this.first = reversed ? donor : recipient;
+    		this.second = reversed ? recipient : donor;
+    	}
+    	@Override
+    	public int hashCode() {
+    		return 31 * first.hashCode() + second.hashCode();
+    	}
+    	@Override
+    	public boolean equals(Object obj) {
+    		if (this == obj) return true;
+    		if (!(obj instanceof ResultKey)) return false;
+    		ResultKey other = (ResultKey) obj;
+    		return first.equals(other.first) && second.equals(other.second);
+    	}
+    	@Override
+    	public String toString() {
+    		return first + " : " + second;
+    	}
+    }
+
+    /**
+     * match result with the first typing of its key as recipient, for a version of the reference data
+     */
+    static class CachedResult {
+    	final long version;
+    	final MatchResult result;
+    	CachedResult(long version, MatchResult result) {
+    		this.version = version;
+    		this.result = result;
+    	}
+    }
+
+    /**
+     * Frequency vector of the haplotype.  Haplotypes typed as a single allele code (in the form resolved by the 
+     * genotype list resolver) recur across many typings, so their vectors are cached per allele code and race 
+     * for the current version of the reference data (unless tracing, which records the dropped and pruned alleles).
+     */
+    private FrequencyVector getFrequencyVector(Locus dpb1, Haplotype h, DetailRace race, Set<Allele> dropTraceSet, MatchCost cost, Trace trace) {
+    	long version = datasetVersion.getAsLong();
+    	String code = (null == trace) ? getAlleleCode(h) : null;
+    	if (null == code) return createFrequencyVector(dpb1, h, race, dropTraceSet, cost, trace, version);
+    	TypingKey key = new TypingKey(code, race);
+    	FrequencyVector vector = frequencyVectors.getIfPresent(key);
+    	if (null == vector || vector.version != version) {
+    		String action = (null == vector) ? CacheEvent.LOAD : CacheEvent.RELOAD;
+    		CacheEvent event = new CacheEvent();
+    		event.begin();
+    		vector = createFrequencyVector(dpb1, h, race, dropTraceSet, cost, trace, version);
+    		frequencyVectors.put(key, vector);
+    		event.loaded("frequencyVectors", action, key);
+    	} else {
+    		cost.alleles += vector.alleles;
+    	}
+    	return vector;
+    }
+
+    /**
+     * @return the allele code the haplotype is typed as, or null if not typed as a single allele code
+     */
+    private static String getAlleleCode(Haplotype h) {
+    	List<AlleleList> alleleLists = h.getAlleleLists();
+    	if (alleleLists.size() != 1) return null;
+    	String glstring = alleleLists.get(0).getGlstring();
+    	return GlStringFunctions.isAlleleCode(glstring) ? glstring : null;
+    }
+
+    private FrequencyVector createFrequencyVector(Locus dpb1, Haplotype h, DetailRace race, Set<Allele> dropTraceSet, 
+    		MatchCost cost, Trace trace, long version) 
+    {
+    	List<Allele> alleles = getLocusAlleles(dpb1, h).collect(Collectors.toList());
+    	List<AlleleFrequency> list = getAlleleFrequencies(alleles, race, dropTraceSet, cost, trace);
+    	List<AlleleFrequency> retained = prune(list, trace);
+    	Integer[] groups = new Integer[retained.size()];
+    	for (int i = 0; i < groups.length; i++) {
+    		groups[i] = epitopeService.getImmuneGroupForAllele(retained.get(i).allele);
+    	}
+    	return new FrequencyVector(version, alleles.size(), getTotalFrequency(list), retained, groups);
+    }
+
+    /**
+     * @return alleles of the haplotype with non-zero frequency
+     */
+    private List<AlleleFrequency> getAlleleFrequencies(List<Allele> alleles, DetailRace race, Set<Allele> dropTraceSet, MatchCost cost, Trace trace) {
+    	boolean single = alleles.size() == 1;
+    	cost.alleles += alleles.size();
+    	if (!single) cost.frequencyLookups += alleles.size();
+    	List<AlleleFrequency> list = new ArrayList<>(alleles.size());
+    	for (Allele a : alleles) {
+    		double f = single ? 1.0 : freqService.getFrequency(race, a.getGlstring());
+    		if (0.0 == f) {
+    			if (null != trace && dropTraceSet.add(a)) {
+    				trace.dropped(a);
+    			}
+    			continue;
+    		}
+    		list.add(new AlleleFrequency(a, f));
+    	}
+    	return list;
+    }
+
+    /**
+     * Drop the least frequent alleles of a haplotype, as long as their cumulative frequency remains below 
+     * the prune threshold (as a fraction of the total frequency of the haplotype).  At least one allele is kept.
+     */
+    List<AlleleFrequency> prune(List<AlleleFrequency> list) {
+    	return prune(list, Trace.current());
+    }
+
+    List<AlleleFrequency> prune(List<AlleleFrequency> list, Trace trace) {
+    	if (pruneThreshold <= 0.0 || list.size() < 2) return list;
+    	List<AlleleFrequency> sorted = new ArrayList<>(list);
+    	sorted.sort((af1, af2) -> Double.compare(af2.frequency, af1.frequency));
+    	double limit = pruneThreshold * getTotalFrequency(sorted);
+    	double tail = 0.0;
+    	int keep = sorted.size();
+    	while (keep > 1 && tail + sorted.get(keep - 1).frequency < limit) {
+    		tail += sorted.get(--keep).frequency;
+    	}
+    	if (null != trace) {
+    		sorted.subList(keep, sorted.size()).forEach(af -> trace.pruned(af.allele, af.frequency));
+    	}
+    	return sorted.subList(0, keep);
+    }
+
+    private static double getTotalFrequency(List<AlleleFrequency> list) {
+    	double total = 0.0;
+    	for (AlleleFrequency af : list) total += af.frequency;
+    	return total;
+    }
+
+    /**
+     * @return distribution of the typing, if computed by a previous match of it, otherwise computed (under the 
+     * deadline of the match) and kept with the typing
+     * @throws MatchLimitException if a limit was exceeded computing the distribution (which is not kept, so 
+     * that each match of the typing makes its own attempt under its own deadline)
+     */
+    private AllelePairDistribution getAllelePairDistribution(Typing typing, Deadline deadline, MatchCost cost, Trace trace) {
+    	if (null == typing.distribution) typing.distribution = getCoalescedDistribution(typing.gl, typing.race, deadline, cost, trace);
+    	return typing.distribution;
+    }
+
+    /**
+     * Allele pair distribution of the typing, coalescing concurrent computations for the same genotype list 
+     * (by glstring) and race.  Callers that wait for a computation in flight share its result, and its cost 
+     * is counted for the caller computing it only.  Callers wait no longer than their own deadline, and 
+     * compute the distribution themselves (under their own deadline) if the computation in flight exceeded 
+     * a limit of the caller computing it.  Not coalesced when tracing, which records the steps of each computation.
+     */
+    private AllelePairDistribution getCoalescedDistribution(GenotypeList gl, DetailRace race, Deadline deadline, MatchCost cost, Trace trace) {
+    	if (null != trace) return getAllelePairDistribution(gl, race, deadline, cost, trace);
+    	return distributions.apply(new TypingKey(gl.getGlstring(), race), () -> {
+    		deadline.checkNow();
+    		return getAllelePairDistribution(gl, race, deadline, cost, null);
+    	}, deadline.remainingNanos(), e -> !(e instanceof MatchLimitException));
+    }
+
+    /**
+     * Compute the probability of each allele pair possible for the typing, as the product of the frequency 
+     * vectors of the haplotypes of each genotype.  If pruning is enabled, the mass of the pairs involving pruned 
+     * alleles is tracked alongside the retained pairs (and normalized with them), so that the discarded mass is 
+     * that of the distribution computed without pruning.
+     */
+    AllelePairDistribution getAllelePairDistribution(GenotypeList gl, DetailRace race, Deadline deadline, MatchCost cost, Trace trace) {
+		long start = System.nanoTime();
+		long frequencyNanos = 0;
+		Locus dpb1 = getDpb1Locus();
 		Map<AllelePair, Double> pm = new HashMap<>();
+		double discarded = 0.0;
+		cost.genotypes += gl.getGenotypes().size();
 		for (Genotype g : gl.getGenotypes()) {
 			List<Haplotype> hl = g.getHaplotypes();
 			Haplotype h1, h2;
@@ -261,48 +996,52 @@ public class MatchServiceImpl implements MatchService {
 			default:
 				throw new RuntimeException("only expecting 2 haplotypes for gl: " + gl);
 			}
-			boolean a1hi = getLocusAlleles(dpb1, h1).count() == 1;
-            boolean a2hi = getLocusAlleles(dpb1, h2).count() == 1;
-            Set<Allele> dropTraceSet = new HashSet<>();
-            getLocusAlleles(dpb1, h1).forEach(a1 -> {
-                double a1f = a1hi ? 1.0 : freqService.getFrequency(race, a1.getGlstring());
-                if (0.0 == a1f) {
-                    if (Trace.isEnabled() && !dropTraceSet.contains(a1)) {
-                        Trace.add(a1.getGlstring() + "(p:0.0,dropped)");
-                        dropTraceSet.add(a1);
-                    }
-                    return;
-                }
-                getLocusAlleles(dpb1, h2).forEach(a2 -> {
-                    double a2f = a2hi ? 1.0 : freqService.getFrequency(race, a2.getGlstring());
-                    if (0.0 == a2f) {
-                        if (Trace.isEnabled() && !dropTraceSet.contains(a2)) {
-                            Trace.add(a2.getGlstring() + "(p:0.0,dropped)");
-                            dropTraceSet.add(a2);
-                        }
-                        return;
-                    }
-                    double f = a1f * a2f;
+            Set<Allele> dropTraceSet = (null == trace) ? null : new HashSet<>();
+            long frequencyStart = System.nanoTime();
+            FrequencyVector v1 = getFrequencyVector(dpb1, h1, race, dropTraceSet, cost, trace);
+            FrequencyVector v2 = (h1 == h2) ? v1 : getFrequencyVector(dpb1, h2, race, dropTraceSet, cost, trace);
+            frequencyNanos += System.nanoTime() - frequencyStart;
+            double full = v1.total * v2.total;
+            double kept = v1.retainedTotal * v2.retainedTotal;
+            if (h1 != h2) {
+            	full *= 2;
+            	kept *= 2;
+            }
+            discarded += full - kept;
+            for (int i = 0; i < v1.retained.size(); i++) {
+            	AlleleFrequency af1 = v1.retained.get(i);
+            	Allele a1 = af1.allele;
+            	Integer g1 = v1.groups[i];
+            	for (int j = 0; j < v2.retained.size(); j++) {
+                    deadline.check();
+                    AlleleFrequency af2 = v2.retained.get(j);
+            		Allele a2 = af2.allele;
+                    double f = af1.frequency * af2.frequency;
                     if (h1 != h2) f *= 2;
-                    Integer g1 = epitopeService.getImmuneGroupForAllele(a1);
-                    Integer g2 = epitopeService.getImmuneGroupForAllele(a2);
-                    if (Trace.isEnabled()) {
-                        Trace.add(a1.getGlstring() + "(g:" + g1 + ",p:" + a1f + ")+"
-                                + a2.getGlstring() + "(g:" + g2 + ",p:" + a2f + ")");
-                    }
+                    Integer g2 = v2.groups[j];
+                    if (null != trace) trace.pair(a1, g1, af1.frequency, a2, g2, af2.frequency);
                     AllelePair ap = new AllelePair(a1, g1, a2, g2, race);
                     pm.put(ap, f);
                     //Double existing = pm.put(ap, f);
                     //if (existing != null) {
                     //    pm.put(ap, existing + f); // eriktodo: verify genotype probability
                     //}
-                });
-            });
+            	}
+            }
             // normalize
-            Double total = pm.values().stream().collect(Collectors.summingDouble(d -> d));
+            double total = pm.values().stream().collect(Collectors.summingDouble(d -> d)) + discarded;
             pm.entrySet().forEach(e -> e.setValue(e.getValue() / total));
+            if (total > 0.0) discarded /= total;
+		}
+		if (discarded > 0.0) {
+			// renormalize retained pairs
+			double retained = 1.0 - discarded;
+			pm.entrySet().forEach(e -> e.setValue(e.getValue() / retained));
 		}
-		return pm;
+		long elapsed = System.nanoTime() - start;
+		metrics.getFrequencyLookup().update(frequencyNanos, TimeUnit.NANOSECONDS);
+		metrics.getPairEnumeration().update(elapsed - frequencyNanos, TimeUnit.NANOSECONDS);
+		return new AllelePairDistribution(pm, discarded);
 	}
 
 }
@@ -0,0 +1,124 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * Coalesces concurrent computations of the same key: the first caller computes the value, and callers 
+ * arriving while it is in flight wait for its result (or exception) instead of computing it again.  
+ * Callers may bound the wait, and may decline to share exceptions that are particular to the caller 
+ * that computed the value (such as exceeding its limits), computing the value themselves instead.  
+ * Nothing is kept once the computation completes, so later callers compute the value again (caching 
+ * is left to the callers).
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final Meter requests;
+	private final Meter coalesced;
+
+	/**
+	 * @param requests meter of the calls
+	 * @param coalesced meter of the calls that waited for a computation in flight
+	 */
+	public SingleFlight(Meter requests, Meter coalesced) {
+		this.requests = requests;
+		this.coalesced = coalesced;
+	}
+
+	/**
+	 * @return function that coalesces concurrent applications of the function to the same argument
+	 */
+	public static <K, V> Function<K, V> coalesce(Function<K, V> function, Meter requests, Meter coalesced) {
+		SingleFlight<K, V> flight = new SingleFlight<>(requests, coalesced);
+		return k -> flight.apply(k, () -> function.apply(k));
+	}
+
+	/**
+	 * @return the value of the computation in flight for the key, if any, otherwise the value computed
+	 */
+	public V apply(K key, Supplier<V> computation) {
+		return apply(key, computation, Long.MAX_VALUE, e -> true);
+	}
+
+	/**
+	 * @param waitNanos the longest to wait for a computation in flight, after which the value is computed 
+	 * by the caller
+	 * @param shared whether an exception of the computation in flight is shared with the callers waiting 
+	 * for it, otherwise they compute the value themselves
+	 * @return the value of the computation in flight for the key, if any, otherwise the value computed
+	 */
+	public V apply(K key, Supplier<V> computation, long waitNanos, Predicate<RuntimeException> shared) {
+		requests.mark();
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (null != existing) {
+			coalesced.mark();
+			return join(key, existing, computation, waitNanos, shared);
+		}
+		try {
+			V value = computation.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private V join(K key, CompletableFuture<V> future, Supplier<V> computation, long waitNanos, Predicate<RuntimeException> shared) {
+		try {
+			return future.get(waitNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			return computation.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted while waiting for: " + key, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				if (shared.test((RuntimeException) cause)) throw (RuntimeException) cause;
+				return computation.get();
+			}
+			if (cause instanceof Error) throw (Error) cause;
+			throw new RuntimeException("failed to compute: " + key, cause);
+		}
+	}
+
+}
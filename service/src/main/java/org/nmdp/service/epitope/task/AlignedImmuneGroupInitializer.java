@@ -32,6 +32,7 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -39,6 +40,7 @@ import java.util.stream.Collectors;
 import org.nmdp.service.epitope.db.DbiManager;
 import org.nmdp.service.epitope.db.GroupRow;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.HlaProtUrls;
+import org.nmdp.service.epitope.jfr.InitializerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -99,17 +101,28 @@ public class AlignedImmuneGroupInitializer implements ImmuneGroupInitializer {
 	 */
 	public void loadImmuneGroups() {
 		logger.info("loading immune groups");
+		InitializerEvent event = new InitializerEvent();
+		event.begin();
 		URLProcessor urlProcessor = new URLProcessor(urls, false);
 		Long datasetDate = dbi.getDatasetDate("immune_group");
 		if (null == datasetDate) datasetDate = 0L;
+		long previous = datasetDate;
+		AtomicLong rows = new AtomicLong();
 		datasetDate = urlProcessor.process(is -> {
 			Map<String, String> alleleProteinMap = getAlleleProteinMap(is);
+			rows.set(alleleProteinMap.size());
 			Iterator<GroupRow<Integer>> iter = alleleProteinMap.entrySet().stream()
 					.map(e -> new GroupRow<Integer>(e.getKey(), scoreAllele(e)))
 					.iterator();
 			dbi.loadImmuneGroups(iter, true);
 		}, datasetDate);
 		dbi.updateDatasetDate("immune_group", datasetDate);
+		if (event.shouldCommit()) {
+			event.dataset = "immune_group";
+			event.rows = rows.get();
+			event.changed = datasetDate != previous;
+			event.commit();
+		}
 		logger.debug("done loading immune groups");
 	}
 
@@ -7,12 +7,14 @@ import java.net.URL;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.StreamSupport;
 
 import org.nmdp.service.epitope.allelecode.DbiAlleleCodeResolver;
 import org.nmdp.service.epitope.db.AlleleCodeRow;
 import org.nmdp.service.epitope.db.DbiManager;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.NmdpV3AlleleCodeUrls;
+import org.nmdp.service.epitope.jfr.InitializerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,18 +42,31 @@ public class AlleleCodeInitializer {
 
 	public void loadAlleleCodes() {
 		logger.info("loading allele codes");
+		InitializerEvent event = new InitializerEvent();
+		event.begin();
 		Long datasetDate = dbi.getDatasetDate("allele_code");
 		if (null == datasetDate) datasetDate = 0L;
+		long previous = datasetDate;
+		AtomicLong rows = new AtomicLong();
 		URLProcessor urlProcessor = new URLProcessor(urls, true);
 		datasetDate = urlProcessor.process(is -> {
-			loadFromStream(is);
+			rows.set(loadFromStream(is));
 		}, datasetDate);
+		if (event.shouldCommit()) {
+			event.dataset = "allele_code";
+			event.rows = rows.get();
+			event.changed = datasetDate != previous;
+			event.commit();
+		}
 		// reload every time
 		// dbi.updateDatasetDate("allele_code", datasetDate);
 		logger.debug("done loading allele codes");
 	}
 	
-	void loadFromStream(final InputStream inputStream) {
+	/**
+	 * @return number of allele codes read from the stream
+	 */
+	int loadFromStream(final InputStream inputStream) {
 		try (	InputStreamReader ir = new InputStreamReader(inputStream); 
 				BufferedReader br = new BufferedReader(ir)) 
 		{
@@ -76,6 +91,7 @@ public class AlleleCodeInitializer {
 	        		.iterator();
         	// dbi.loadAlleleCodes(alleleCodeIter, true);
         	resolver.buildAlleleCodeMap(alleleCodeIter);
+        	return ai.get();
 		} catch (RuntimeException e) {
 			throw e;
 		} catch (Exception e) {
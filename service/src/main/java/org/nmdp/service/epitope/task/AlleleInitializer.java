@@ -27,10 +27,12 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.nmdp.service.epitope.db.AlleleRow;
 import org.nmdp.service.epitope.db.DbiManager;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.HlaAlleleUrls;
+import org.nmdp.service.epitope.jfr.InitializerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,8 +61,12 @@ public class AlleleInitializer {
 
     public void loadAlleles() {
     	logger.info("loading alleles");
+    	InitializerEvent event = new InitializerEvent();
+    	event.begin();
         Long datasetDate = dbiManager.getDatasetDate("hla_allele");
         if (null == datasetDate) datasetDate = 0L;
+        long previous = datasetDate;
+        AtomicLong rows = new AtomicLong();
         URLProcessor urlProcessor = new URLProcessor(urls, false);
         datasetDate = urlProcessor.process(is -> {
         	try (InputStreamReader isr = new InputStreamReader(is);
@@ -70,6 +76,7 @@ public class AlleleInitializer {
 	        		.map(s -> getAllele(s))
 	        		.filter(s -> s.startsWith("DPB1*"))
 	        		.map(s -> new AlleleRow(s.substring(0, s.indexOf("*")), s.substring(s.indexOf("*") + 1)))
+	        		.peek(r -> rows.incrementAndGet())
 	        		.iterator();
 	        	dbiManager.loadAlleles(alleleIter, true);
     		} catch (RuntimeException e) {
@@ -79,6 +86,12 @@ public class AlleleInitializer {
 			}
         }, datasetDate);
 		dbiManager.updateDatasetDate("hla_allele", datasetDate);
+		if (event.shouldCommit()) {
+			event.dataset = "hla_allele";
+			event.rows = rows.get();
+			event.changed = datasetDate != previous;
+			event.commit();
+		}
     	logger.debug("done loading alleles");
     }
             
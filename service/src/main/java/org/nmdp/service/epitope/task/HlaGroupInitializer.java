@@ -29,6 +29,7 @@ import org.nmdp.service.epitope.db.GroupRow;
 import org.nmdp.service.epitope.gl.transform.GlStringFunctions;
 import org.nmdp.service.epitope.guice.ConfigurationBindings;
 import org.nmdp.service.epitope.guice.ConfigurationBindings.ImgtHlaUrls;
+import org.nmdp.service.epitope.jfr.InitializerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,11 +81,14 @@ public class HlaGroupInitializer {
 
     public void loadGroups() {
     	logger.info("loading groups");
+    	InitializerEvent event = new InitializerEvent();
+    	event.begin();
         Long datasetDate = dbiManager.getDatasetDate("hla_g_group");
         if (null == datasetDate) datasetDate = 0L;
         Long pGroupDate = dbiManager.getDatasetDate("hla_p_group");
         if (null == pGroupDate) pGroupDate = 0L;
         if (pGroupDate.compareTo(datasetDate) < 0) datasetDate = pGroupDate;
+        long previous = datasetDate;
         URLProcessor urlProcessor = new URLProcessor(urls, true);
         LinkedList<GroupRow<String>> gGroupRows = new LinkedList<>();
         LinkedList<GroupRow<String>> pGroupRows = new LinkedList<>();
@@ -135,6 +139,12 @@ public class HlaGroupInitializer {
         }, datasetDate);
         dbiManager.updateDatasetDate("hla_g_group", datasetDate);
         dbiManager.updateDatasetDate("hla_p_group", datasetDate);
+        if (event.shouldCommit()) {
+        	event.dataset = "hla_group";
+        	event.rows = gGroupRows.size() + pGroupRows.size();
+        	event.changed = datasetDate != previous;
+        	event.commit();
+        }
         logger.debug("done loading HLA groups");
     }
 
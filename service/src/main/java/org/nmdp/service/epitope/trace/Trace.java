@@ -1,58 +1,190 @@
 package org.nmdp.service.epitope.trace;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.nmdp.gl.Allele;
+import org.nmdp.service.epitope.service.AllelePair;
+
+/**
+ * Trace of the steps of a match, recorded as compact events (the alleles, groups and probabilities
+ * involved) in a preallocated buffer that is reused for all the matches of a request, and rendered
+ * to strings only when read (typically while the response is serialized).  Callers look up the
+ * trace of the current thread once per match with current(), which is null unless tracing is enabled.
+ * Since responses render from the buffer after the request completes, each request gets its own buffer.
+ */
 public class Trace {
 
-    List<String> list;
-    String context;
-    
+	/**
+	 * side of the match the events pertain to, rendered as a prefix of each event
+	 */
+    public enum Context {
+    	RECIPIENT("r:"), DONOR("d:"), MATCH("m:");
+    	private final String prefix;
+    	Context(String prefix) { this.prefix = prefix; }
+    }
+
+    enum Type { DROPPED, PRUNED, PAIR, COMPARISON, LIMITED }
+
+    static final int INITIAL_CAPACITY = 256;
+    static final int REFS = 4;
+    static final int VALUES = 3;
+
     static final ThreadLocal<Trace> tl = new ThreadLocal<Trace>();
-    
-    public static void enable() {
-        tl.set(new Trace());
+
+    private Type[] types = new Type[INITIAL_CAPACITY];
+    private Context[] contexts = new Context[INITIAL_CAPACITY];
+    private Object[] refs = new Object[INITIAL_CAPACITY * REFS];
+    private double[] values = new double[INITIAL_CAPACITY * VALUES];
+    private int size = 0;
+    private int mark = 0;
+    private Context context;
+
+    /**
+     * enable tracing on this thread, with a new buffer
+     * @return the trace
+     */
+    public static Trace enable() {
+    	Trace t = new Trace();
+        tl.set(t);
+        return t;
+    }
+
+    /**
+     * @return trace of this thread, or null if tracing is not enabled
+     */
+    public static Trace current() {
+    	return tl.get();
     }
 
     public static boolean isEnabled() {
         return tl.get() != null;
     }
-    
+
     public static void disable() {
         tl.remove();
     }
 
-    public static void reset() {
-        enable();
+    public void setContext(Context context) {
+        this.context = context;
     }
-    
-    public static void setContext(String context) {
-        tl.get().context = context;
+
+    public Context getContext() {
+        return context;
     }
-    
-    public static String getContext() {
-        return tl.get().context;
+
+    /**
+     * allele dropped for lack of frequency
+     */
+    public void dropped(Allele allele) {
+    	add(Type.DROPPED, allele, null, null, null, 0.0, 0.0, 0.0);
     }
-    
-    public static void add(Object trace) {
-        Trace t = tl.get();
-        if (null != t) t.list.add(t.context + trace.toString());
+
+    /**
+     * allele pruned as infrequent
+     */
+    public void pruned(Allele allele, double frequency) {
+    	add(Type.PRUNED, allele, null, null, null, frequency, 0.0, 0.0);
     }
-    
-    public static List<String> getTrace() {
-        Trace t = tl.get();
-        if (null == t) return null;
-        return Collections.unmodifiableList(t.list);
-//        StringBuilder sb = new StringBuilder("trace:\n");
-//        for (String s : t.list) {
-//            sb.append(s).append("\n");
-//        }
-//        return sb.toString(); 
+
+    /**
+     * allele pair enumerated for a genotype
+     */
+    public void pair(Allele a1, Integer g1, double f1, Allele a2, Integer g2, double f2) {
+    	add(Type.PAIR, a1, g1, a2, g2, f1, f2, 0.0);
+    }
+
+    /**
+     * comparison of a recipient and donor allele pair
+     */
+    public void comparison(AllelePair rp, double rprob, AllelePair dp, double dprob, Object grade, double p) {
+    	add(Type.COMPARISON, rp, dp, grade, null, rprob, dprob, p);
+    }
+
+    /**
+     * match limited to groups only
+     */
+    public void limited(String message) {
+    	add(Type.LIMITED, message, null, null, null, 0.0, 0.0, 0.0);
+    }
+
+    private void add(Type type, Object r0, Object r1, Object r2, Object r3, double v0, double v1, double v2) {
+    	if (size == types.length) grow();
+    	types[size] = type;
+    	contexts[size] = context;
+    	int r = size * REFS;
+    	refs[r] = r0;
+    	refs[r + 1] = r1;
+    	refs[r + 2] = r2;
+    	refs[r + 3] = r3;
+    	int v = size * VALUES;
+    	values[v] = v0;
+    	values[v + 1] = v1;
+    	values[v + 2] = v2;
+    	size++;
+    }
+
+    private void grow() {
+    	int capacity = types.length * 2;
+    	types = Arrays.copyOf(types, capacity);
+    	contexts = Arrays.copyOf(contexts, capacity);
+    	refs = Arrays.copyOf(refs, capacity * REFS);
+    	values = Arrays.copyOf(values, capacity * VALUES);
+    }
+
+    /**
+     * @return view of the events recorded since the previous call, rendered to strings as they are read
+     */
+    public List<String> next() {
+    	final int from = mark;
+    	final int to = size;
+    	mark = size;
+    	return new AbstractList<String>() {
+    		@Override public String get(int index) {
+    			if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException("index: " + index);
+    			return render(from + index);
+    		}
+    		@Override public int size() {
+    			return to - from;
+    		}
+    	};
+    }
+
+    String render(int i) {
+    	StringBuilder sb = new StringBuilder();
+    	if (null != contexts[i]) sb.append(contexts[i].prefix);
+    	int r = i * REFS;
+    	int v = i * VALUES;
+    	switch (types[i]) {
+    	case DROPPED:
+    		return sb.append(((Allele) refs[r]).getGlstring()).append("(p:0.0,dropped)").toString();
+    	case PRUNED:
+    		return sb.append(((Allele) refs[r]).getGlstring()).append("(p:").append(values[v]).append(",pruned)").toString();
+    	case PAIR:
+    		return sb.append(((Allele) refs[r]).getGlstring()).append("(g:").append(refs[r + 1]).append(",p:").append(values[v]).append(")+")
+    				.append(((Allele) refs[r + 2]).getGlstring()).append("(g:").append(refs[r + 3]).append(",p:").append(values[v + 1]).append(")")
+    				.toString();
+    	case COMPARISON:
+    		AllelePair rp = (AllelePair) refs[r];
+    		AllelePair dp = (AllelePair) refs[r + 1];
+    		return sb.append("r:")
+    				.append(rp.getA1().getGlstring()).append("(g:").append(rp.getG1()).append(")+")
+    				.append(rp.getA2().getGlstring()).append("(g:").append(rp.getG2()).append("):p:").append(values[v])
+    				.append(",d:")
+    				.append(dp.getA1().getGlstring()).append("(g:").append(dp.getG1()).append(")+")
+    				.append(dp.getA2().getGlstring()).append("(g:").append(dp.getG2()).append("):p:").append(values[v + 1])
+    				.append(",m:").append(refs[r + 2])
+    				.append("(p:").append(values[v + 2]).append(")")
+    				.toString();
+    	case LIMITED:
+    		return sb.append("group only (").append(refs[r]).append(")").toString();
+    	default:
+    		throw new IllegalStateException("unknown trace event type: " + types[i]);
+    	}
     }
 
     private Trace() {
-        list = new LinkedList<>();
     }
-    
+
 }
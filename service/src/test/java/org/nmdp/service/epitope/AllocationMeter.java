@@ -0,0 +1,76 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated per call of an operation on the current thread, using 
+ * ThreadMXBean.getThreadAllocatedBytes.  The operation is warmed up first, so that the measurement 
+ * reflects compiled code (including escape analysis), not the interpreter.
+ */
+public class AllocationMeter {
+
+	public static final int WARMUP_CALLS = 20000;
+	public static final int MEASURED_CALLS = 10000;
+
+	private static final java.lang.management.ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * @return true if the JVM can report the bytes allocated by a thread
+	 */
+	public static boolean isSupported() {
+		return BEAN instanceof ThreadMXBean 
+				&& ((ThreadMXBean) BEAN).isThreadAllocatedMemorySupported()
+				&& ((ThreadMXBean) BEAN).isThreadAllocatedMemoryEnabled();
+	}
+
+	/**
+	 * @return average bytes allocated per call of the operation, after warming it up
+	 */
+	public static long bytesPerCall(Runnable operation) {
+		return bytesPerCall(operation, WARMUP_CALLS, MEASURED_CALLS);
+	}
+
+	/**
+	 * @return average bytes allocated per call of the operation, after warming it up
+	 */
+	public static long bytesPerCall(Runnable operation, int warmupCalls, int measuredCalls) {
+		ThreadMXBean bean = (ThreadMXBean) BEAN;
+		long id = Thread.currentThread().getId();
+		for (int i = 0; i < warmupCalls; i++) {
+			operation.run();
+		}
+		long before = bean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < measuredCalls; i++) {
+			operation.run();
+		}
+		long after = bean.getThreadAllocatedBytes(id);
+		return (after - before) / measuredCalls;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.nmdp.service.epitope.AllocationMeter.bytesPerCall;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nmdp.gl.Allele;
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.client.GlClient;
+import org.nmdp.gl.client.local.LocalGlClient;
+import org.nmdp.service.epitope.db.DbiManager;
+import org.nmdp.service.epitope.domain.DetailRace;
+import org.nmdp.service.epitope.gl.EphemeralGenotypeListResolver;
+import org.nmdp.service.epitope.gl.TypingPipeline;
+import org.nmdp.service.epitope.service.EpitopeServiceImpl;
+import org.nmdp.service.epitope.service.FrequencyServiceImpl;
+import org.nmdp.service.epitope.service.LimitMode;
+import org.nmdp.service.epitope.service.MatchMetrics;
+import org.nmdp.service.epitope.service.MatchServiceImpl;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Upper bounds on the bytes allocated per call of the hot paths of a match, on fixed inputs, to catch 
+ * regressions such as boxing or per-call regex compilation.  The bounds are ceilings rather than 
+ * expected values; each failure reports the measured allocation, and the bounds should be lowered as 
+ * the hot paths get lighter.
+ */
+public class AllocationRegressionTest {
+
+	static final long FREQUENCY_BOUND = 32;
+	static final long IMMUNE_GROUP_BOUND = 64;
+	static final long PIPELINE_BOUND = 32 * 1024;
+	static final long MATCH_BOUND = 64 * 1024;
+
+	static final List<String> ALLELES = Arrays.asList(
+			"HLA-DPB1*01:01", "HLA-DPB1*02:01", "HLA-DPB1*03:01", "HLA-DPB1*04:01", "HLA-DPB1*04:02", "HLA-DPB1*09:01");
+	static final List<Integer> GROUPS = Arrays.asList(3, 3, 2, 3, 3, 1);
+	static final String RECIPIENT_GL = "HLA-DPB1*01:01/HLA-DPB1*04:01+HLA-DPB1*02:01";
+	static final String DONOR_GL = "HLA-DPB1*03:01/HLA-DPB1*04:02+HLA-DPB1*09:01";
+	static final String PIPELINE_GL = "DPB1*04:AB/DPB1*04:01:01:02+DPB1*02:01:02|DPB1*04:01+DPB1*09:01";
+
+	private GlClient glClient;
+	private EpitopeServiceImpl epitopeService;
+	private FrequencyServiceImpl frequencyService;
+	private MatchServiceImpl matchService;
+	private TypingPipeline pipeline;
+	private double sink;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		assumeTrue(AllocationMeter.isSupported());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		glClient = LocalGlClient.create();
+		Map<String, Integer> groupMap = new HashMap<>();
+		Map<String, Double> frequencies = new HashMap<>();
+		for (int i = 0; i < ALLELES.size(); i++) {
+			groupMap.put(ALLELES.get(i), GROUPS.get(i));
+			frequencies.put(ALLELES.get(i), 0.1);
+		}
+		Map<DetailRace, Map<String, Double>> raceFrequencies = new HashMap<>();
+		raceFrequencies.put(DetailRace.CAU, frequencies);
+		DbiManager dbi = mock(DbiManager.class);
+		when(dbi.getAllelesForLocus(anyString())).thenReturn(ALLELES);
+		when(dbi.getAlleleGroupMap()).thenReturn(groupMap);
+		when(dbi.getRaceAlleleFrequencyMap()).thenReturn(raceFrequencies);
+
+		epitopeService = new EpitopeServiceImpl(glClient, Function.identity(), dbi);
+		epitopeService.buildImmuneGroupMaps();
+		frequencyService = new FrequencyServiceImpl(dbi, 1.0E-5);
+		frequencyService.buildFrequencyMap();
+
+		Map<String, String> pGroups = new HashMap<>();
+		pGroups.put("HLA-DPB1*04:01:01:02", "HLA-DPB1*04:01P");
+		Map<String, List<String>> codes = Collections.singletonMap("HLA-DPB1*04:AB", Arrays.asList("HLA-DPB1*04:01", "HLA-DPB1*04:02"));
+		pipeline = new TypingPipeline(glClient, "HLA-DPB1", codes::get, pGroups::get, 2, () -> 0L, 1000L);
+
+		matchService = new MatchServiceImpl(epitopeService, new EphemeralGenotypeListResolver(glClient), glClient, 
+				frequencyService, 1.0E-5, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 0.0, 
+				1000L, 0L, new MatchMetrics(new MetricRegistry()));
+	}
+
+	@Test
+	public void testGetFrequency() throws Exception {
+		long bytes = bytesPerCall(() -> sink += frequencyService.getFrequency(DetailRace.CAU, "HLA-DPB1*04:01"));
+		assertThat("bytes per getFrequency: " + bytes, bytes, lessThanOrEqualTo(FREQUENCY_BOUND));
+	}
+
+	@Test
+	public void testGetImmuneGroupForAllele() throws Exception {
+		Allele allele = glClient.createAllele("HLA-DPB1*04:01");
+		long bytes = bytesPerCall(() -> sink += epitopeService.getImmuneGroupForAllele(allele));
+		assertThat("bytes per getImmuneGroupForAllele: " + bytes, bytes, lessThanOrEqualTo(IMMUNE_GROUP_BOUND));
+	}
+
+	@Test
+	public void testTypingPipeline() throws Exception {
+		long bytes = bytesPerCall(() -> sink += pipeline.apply(PIPELINE_GL).getGenotypes().size());
+		assertThat("bytes per typing resolution: " + bytes, bytes, lessThanOrEqualTo(PIPELINE_BOUND));
+	}
+
+	@Test
+	public void testGetMatch() throws Exception {
+		GenotypeList recipient = glClient.createGenotypeList(RECIPIENT_GL);
+		GenotypeList donor = glClient.createGenotypeList(DONOR_GL);
+		long bytes = bytesPerCall(() -> sink += matchService.getMatch(recipient, DetailRace.CAU, donor, DetailRace.CAU).getMatchProbability(), 
+				2000, 1000);
+		assertThat("bytes per getMatch: " + bytes, bytes, lessThanOrEqualTo(MATCH_BOUND));
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.gl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AlleleDictionaryTest {
+
+	@Test
+	public void testId() throws Exception {
+		AlleleDictionary dictionary = new AlleleDictionary(Arrays.asList("HLA-DPB1*02:01", "HLA-DPB1*01:01", "HLA-DPB1*04:AB"));
+		assertThat(dictionary.size(), equalTo(3));
+		assertThat(dictionary.name(dictionary.id("HLA-DPB1*01:01")), equalTo("HLA-DPB1*01:01"));
+		assertThat(dictionary.name(dictionary.id("HLA-DPB1*04:AB")), equalTo("HLA-DPB1*04:AB"));
+		assertThat(dictionary.id("01:01"), equalTo(dictionary.id("HLA-DPB1*01:01")));
+		assertThat(dictionary.id("03:01"), equalTo(-1));
+	}
+
+	@Test
+	public void testName_PrefixedPreferred() throws Exception {
+		for (List<String> alleles : Arrays.asList(
+				Arrays.asList("01:01", "HLA-DPB1*01:01", "DPB1*01:01"),
+				Arrays.asList("DPB1*01:01", "01:01", "HLA-DPB1*01:01"),
+				Arrays.asList("HLA-DPB1*01:01", "DPB1*01:01", "01:01")))
+		{
+			AlleleDictionary dictionary = new AlleleDictionary(alleles);
+			assertThat(dictionary.size(), equalTo(1));
+			assertThat(dictionary.name(0), equalTo("HLA-DPB1*01:01"));
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.nmdp.service.epitope.gl.PackedAllele.parse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlleleTrieTest {
+
+	private AlleleDictionary dictionary;
+	private AlleleTrie trie;
+
+	@Before
+	public void setUp() throws Exception {
+		dictionary = new AlleleDictionary(Arrays.asList(
+				"HLA-DPB1*04:01", "HLA-DPB1*04:01:01:02", "HLA-DPB1*04:01:02N", "HLA-DPB1*04:02", "HLA-DPB1*104:01", "HLA-DPB1*04:AB"));
+		trie = new AlleleTrie(dictionary);
+	}
+
+	private String longestPrefix(String allele) {
+		int id = trie.longestPrefix(parse(allele));
+		return (id < 0) ? null : dictionary.name(id);
+	}
+
+	private List<String> under(String prefix) {
+		List<String> names = new ArrayList<>();
+		trie.forEachUnder(parse(prefix), id -> names.add(dictionary.name(id)));
+		return names;
+	}
+
+	@Test
+	public void testLongestPrefix() throws Exception {
+		assertThat(longestPrefix("HLA-DPB1*04:01:01:02"), equalTo("HLA-DPB1*04:01:01:02"));
+		assertThat(longestPrefix("HLA-DPB1*04:01:01:03"), equalTo("HLA-DPB1*04:01"));
+		assertThat(longestPrefix("HLA-DPB1*04:01:02N"), equalTo("HLA-DPB1*04:01:02N"));
+		assertThat(longestPrefix("HLA-DPB1*04:01:02"), equalTo("HLA-DPB1*04:01"));
+		assertThat(longestPrefix("HLA-DPB1*04:02:01L"), equalTo("HLA-DPB1*04:02"));
+		assertThat(longestPrefix("HLA-DPB1*05:01"), equalTo(null));
+	}
+
+	@Test
+	public void testForEachUnder() throws Exception {
+		assertThat(under("HLA-DPB1*04"), 
+				contains("HLA-DPB1*04:01", "HLA-DPB1*04:01:01:02", "HLA-DPB1*04:01:02N", "HLA-DPB1*04:02"));
+		assertThat(under("HLA-DPB1*04:01:02N"), contains("HLA-DPB1*04:01:02N"));
+		assertThat(under("HLA-DPB1*104"), contains("HLA-DPB1*104:01"));
+		assertThat(under("HLA-DPB1*05"), empty());
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.nmdp.service.epitope.EpitopeServiceTestData.aLocus;
+
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.nmdp.gl.Allele;
+import org.nmdp.gl.Genotype;
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.client.GlClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EphemeralGenotypeListResolverTest {
+
+	@Mock
+	private GlClient glClient;
+
+	private EphemeralGenotypeListResolver resolver;
+
+	@Before
+	public void setup() throws Exception {
+		when(glClient.createLocus("HLA-DPB1")).thenReturn(aLocus());
+		resolver = new EphemeralGenotypeListResolver(glClient);
+	}
+
+	@Test
+	public void testApply() throws Exception {
+		String gl = "HLA-DPB1*01:01/HLA-DPB1*02:01+HLA-DPB1*03:01|HLA-DPB1*04:01+HLA-DPB1*04:01~HLA-DRB1*01:01";
+		GenotypeList test = resolver.apply(gl);
+		assertThat(test.getGlstring(), equalTo(gl));
+		assertThat(test.getGenotypes(), hasSize(2));
+		Genotype g = test.getGenotypes().get(0);
+		assertThat(g.getHaplotypes().get(0).getAlleleLists().get(0).getAlleles().stream().map(Allele::getGlstring).collect(Collectors.toList()), 
+				contains("HLA-DPB1*01:01", "HLA-DPB1*02:01"));
+		Allele dpb1 = g.getHaplotypes().get(1).getAlleleLists().get(0).getAlleles().get(0);
+		assertThat(dpb1.getLocus(), equalTo(aLocus()));
+		Allele drb1 = test.getGenotypes().get(1).getHaplotypes().get(1).getAlleleLists().get(1).getAlleles().get(0);
+		assertThat(drb1.getLocus().getGlstring(), equalTo("HLA-DRB1"));
+		verify(glClient, never()).createGenotypeList(anyString());
+		verify(glClient, never()).createAllele(anyString());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testApply_InvalidAllele() throws Exception {
+		resolver.apply("HLA-DPB1*01:01+01:01");
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testApply_MultilocusUnphasedGenotype() throws Exception {
+		resolver.apply("HLA-DPB1*01:01+HLA-DPB1*02:01^HLA-DRB1*01:01+HLA-DRB1*01:02");
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.nmdp.service.epitope.gl.PackedAllele.NONE;
+import static org.nmdp.service.epitope.gl.PackedAllele.format;
+import static org.nmdp.service.epitope.gl.PackedAllele.parse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PackedAlleleTest {
+
+	@Test
+	public void testParseFormat() throws Exception {
+		for (String allele : Arrays.asList("01:01", "04:01:01:02", "104:01:01:02N", "1003:01", "09:01G", "04:01P")) {
+			assertThat(format(parse(allele)), equalTo(allele));
+		}
+	}
+
+	@Test
+	public void testParse_Prefix() throws Exception {
+		assertThat(parse("HLA-DPB1*104:01N"), equalTo(parse("104:01N")));
+		assertThat(parse("DPB1*104:01N"), equalTo(parse("104:01N")));
+		assertThat(parse("HLA-DQB1*02:01"), equalTo(NONE));
+	}
+
+	@Test
+	public void testParse_None() throws Exception {
+		for (String allele : Arrays.asList("", "1:01", "01:", "010:01", "04:AB", "01:01:01:01:01", "01:01NN", "01:01n", "5000:01")) {
+			assertThat(allele, parse(allele), equalTo(NONE));
+		}
+	}
+
+	@Test
+	public void testFields() throws Exception {
+		long packed = parse("104:01:01:02N");
+		assertThat(PackedAllele.fields(packed), equalTo(4));
+		assertThat(PackedAllele.field(packed, 0), equalTo(104));
+		assertThat(PackedAllele.field(packed, 3), equalTo(2));
+		assertThat(PackedAllele.suffix(packed), equalTo('N'));
+		assertThat(PackedAllele.isNull(packed), equalTo(true));
+		assertThat(PackedAllele.fields(parse("01:01")), equalTo(2));
+		assertThat(PackedAllele.field(parse("01:01"), 2), equalTo(-1));
+		assertThat(PackedAllele.suffix(parse("01:01")), equalTo((char) 0));
+	}
+
+	@Test
+	public void testTruncate() throws Exception {
+		long packed = parse("104:01:01:02N");
+		assertThat(format(PackedAllele.truncate(packed, 4)), equalTo("104:01:01:02"));
+		assertThat(format(PackedAllele.truncate(packed, 2)), equalTo("104:01"));
+		assertThat(format(PackedAllele.truncate(packed, 1)), equalTo("104"));
+		assertThat(PackedAllele.truncate(packed, 2), equalTo(parse("104:01")));
+	}
+
+	@Test
+	public void testCompare() throws Exception {
+		assertThat(PackedAllele.compare(parse("11:01"), parse("104:01")), lessThan(0));
+		assertThat(PackedAllele.compare(parse("04:01"), parse("04:01:01")), lessThan(0));
+		assertThat(PackedAllele.compare(parse("04:01:01"), parse("04:01:01N")), lessThan(0));
+		assertThat(PackedAllele.compare(parse("04:02"), parse("04:01:01:02")), greaterThan(0));
+	}
+
+	@Test
+	public void testAlleleDictionary() throws Exception {
+		AlleleDictionary dictionary = new AlleleDictionary(Arrays.asList("HLA-DPB1*104:01", "HLA-DPB1*11:01", "HLA-DPB1*04:AB"));
+		assertThat(dictionary.size(), equalTo(3));
+		assertThat(dictionary.name(0), equalTo("HLA-DPB1*11:01"));
+		assertThat(dictionary.name(1), equalTo("HLA-DPB1*104:01"));
+		assertThat(dictionary.name(2), equalTo("HLA-DPB1*04:AB"));
+		assertThat(dictionary.id("DPB1*104:01"), equalTo(1));
+		assertThat(dictionary.id(parse("11:01")), equalTo(0));
+		assertThat(dictionary.id("HLA-DPB1*04:AB"), equalTo(2));
+		assertThat(dictionary.id("HLA-DPB1*04:01"), equalTo(-1));
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.gl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.nmdp.service.epitope.EpitopeServiceTestData.aLocus;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.nmdp.gl.Allele;
+import org.nmdp.gl.GenotypeList;
+import org.nmdp.gl.client.GlClient;
+import org.nmdp.service.epitope.gl.transform.GlStringFunctions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TypingPipelineTest {
+
+	@Mock
+	private GlClient glClient;
+
+	private Map<String, List<String>> codes = new HashMap<>();
+	private Map<String, String> pGroups = new HashMap<>();
+	private AtomicLong version = new AtomicLong();
+	private TypingPipeline pipeline;
+
+	@Before
+	public void setup() throws Exception {
+		when(glClient.createLocus("HLA-DPB1")).thenReturn(aLocus());
+		codes.put("HLA-DPB1*04:AB", Arrays.asList("HLA-DPB1*04:01:01:01", "HLA-DPB1*04:02", "HLA-DPB1*04:01:01:02"));
+		pGroups.put("HLA-DPB1*04:02", "HLA-DPB1*04:02P");
+		pipeline = new TypingPipeline(glClient, "HLA-DPB1", codes::get, pGroups::get, 2, version::get, 10);
+	}
+
+	private static List<List<List<String>>> alleles(GenotypeList gl) {
+		return gl.getGenotypes().stream()
+				.map(g -> g.getHaplotypes().stream()
+						.map(h -> h.getAlleleLists().stream()
+								.flatMap(al -> al.getAlleles().stream())
+								.map(Allele::getGlstring)
+								.collect(Collectors.toList()))
+						.collect(Collectors.toList()))
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void testApply() throws Exception {
+		GenotypeList test = pipeline.apply("DPB1*04:AB+02:01:02|HLA-DPB1*104:01:01N+HLA-DPB1*03:01");
+		assertThat(alleles(test), equalTo(Arrays.asList(
+				Arrays.asList(
+						Arrays.asList("HLA-DPB1*04:01", "HLA-DPB1*04:02", "HLA-DPB1*04:01"), 
+						Arrays.asList("HLA-DPB1*02:01")),
+				Arrays.asList(
+						Arrays.asList("HLA-DPB1*104:01N"), 
+						Arrays.asList("HLA-DPB1*03:01")))));
+	}
+
+	@Test
+	public void testApply_SameAsTransformedGlstring() throws Exception {
+		String gl = "DPB1*04:AB/04:02+02:01:02|HLA-DPB1*104:01:01N+HLA-DPB1*03:01";
+		Function<String, String> transformer = GlStringFunctions.normalizePrefixes("HLA-DPB1")
+				.andThen(GlStringFunctions.expandAlleleCodes(c -> String.join("/", codes.get(c))))
+				.andThen(GlStringFunctions.normalizeGroups(pGroups::get))
+				.andThen(GlStringFunctions.trimAllelesToFields(2));
+		GenotypeList expect = new EphemeralGenotypeListResolver(glClient).apply(transformer.apply(gl));
+		assertThat(alleles(pipeline.apply(gl)), equalTo(alleles(expect)));
+	}
+
+	@Test
+	public void testExpand_CachedForDatasetVersion() throws Exception {
+		List<Allele> expanded = pipeline.expand("HLA-DPB1*04:AB");
+		codes.put("HLA-DPB1*04:AB", Arrays.asList("HLA-DPB1*04:02"));
+		assertThat(pipeline.expand("HLA-DPB1*04:AB"), sameInstance(expanded));
+		version.incrementAndGet();
+		assertThat(pipeline.expand("HLA-DPB1*04:AB").stream().map(Allele::getGlstring).collect(Collectors.toList()), 
+				equalTo(Arrays.asList("HLA-DPB1*04:02")));
+	}
+
+}
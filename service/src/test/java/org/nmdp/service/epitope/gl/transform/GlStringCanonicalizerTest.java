@@ -0,0 +1,45 @@
+package org.nmdp.service.epitope.gl.transform;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class GlStringCanonicalizerTest {
+
+    private Function<String, String> canonicalizer = GlStringFunctions.canonicalize("HLA-DPB1");
+
+    @Test
+    public void testApply() throws Exception {
+        String expect = "HLA-DPB1*02:01+HLA-DPB1*04:01";
+        assertThat(canonicalizer.apply("HLA-DPB1*04:01+HLA-DPB1*02:01"), equalTo(expect));
+        assertThat(canonicalizer.apply("DPB1*02:01+DPB1*04:01"), equalTo(expect));
+    }
+
+    @Test
+    public void testApply_DuplicateAllelesKept() throws Exception {
+        assertThat(canonicalizer.apply("04:01+HLA-DPB1*02:01/HLA-DPB1*02:01"), 
+                equalTo("HLA-DPB1*02:01/HLA-DPB1*02:01+HLA-DPB1*04:01"));
+    }
+
+    @Test
+    public void testApply_AlleleOrder() throws Exception {
+        String test = canonicalizer.apply("HLA-DPB1*104:01/HLA-DPB1*04:AB/HLA-DPB1*11:01/HLA-DPB1*04:01:01:02N");
+        assertThat(test, equalTo("HLA-DPB1*04:01:01:02N/HLA-DPB1*11:01/HLA-DPB1*104:01/HLA-DPB1*04:AB"));
+    }
+
+    @Test
+    public void testApply_GenotypeOrderKept() throws Exception {
+        String test = canonicalizer.apply("04:01+02:01|03:01+01:01|02:01+04:01");
+        assertThat(test, equalTo("HLA-DPB1*02:01+HLA-DPB1*04:01|HLA-DPB1*01:01+HLA-DPB1*03:01|HLA-DPB1*02:01+HLA-DPB1*04:01"));
+    }
+
+    @Test
+    public void testApply_MultilocusUnphasedGenotype() throws Exception {
+        String gl = "HLA-DPB1*04:01+HLA-DPB1*02:01^HLA-DRB1*01:01+HLA-DRB1*01:02";
+        assertThat(canonicalizer.apply(gl), equalTo(gl));
+    }
+
+}
@@ -27,6 +27,7 @@ import static com.google.common.collect.ObjectArrays.concat;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertThat;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.anAllele;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.getTestDbiManager;
@@ -36,9 +37,12 @@ import static org.nmdp.service.epitope.EpitopeServiceTestData.group1Alleles;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.group2Alleles;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.group3Alleles;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -109,10 +113,25 @@ public class EpitopeServiceImplTest {
 						group3Alleles().toArray(a0), Allele.class)));
 	}
 
+	@Test
+	public void testGetAllAlleles_GlstringOrder() throws Exception {
+		List<String> glstrings = service.getAllAlleles().stream().map(Allele::getGlstring).collect(Collectors.toList());
+		List<String> sorted = new ArrayList<>(glstrings);
+		Collections.sort(sorted);
+		assertThat(glstrings, equalTo(sorted));
+	}
+
 	@Test
 	public void testGetAllelesForGroup() throws Exception {
 		List<Allele> group1Alleles = service.getAllelesForImmuneGroup(1);
 		assertThat(group1Alleles, containsInAnyOrder(group1Alleles().toArray()));
 	}
 
+	@Test
+	public void testGetAllelesForPrefix() throws Exception {
+		assertThat(service.getAllelesForPrefix("10"), contains(group1Alleles().get(1)));
+		assertThat(service.getAllelesForPrefix("10:01"), contains(group1Alleles().get(1)));
+		assertThat(service.getAllelesForPrefix("10:02"), empty());
+	}
+
 }
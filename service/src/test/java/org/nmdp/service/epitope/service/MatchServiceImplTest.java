@@ -23,10 +23,15 @@
 
 package org.nmdp.service.epitope.service;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.aGenotype;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.aGenotypeList;
@@ -34,12 +39,13 @@ import static org.nmdp.service.epitope.EpitopeServiceTestData.aLocus;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.anAlleleList;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.getTestEpitopeService;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.getTestGlClient;
-import static org.nmdp.service.epitope.EpitopeServiceTestData.getTestGlStringFilter;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.group1Alleles;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.group2Alleles;
 import static org.nmdp.service.epitope.EpitopeServiceTestData.group3Alleles;
 import static org.nmdp.service.epitope.domain.DetailRace.CAU;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -48,6 +54,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.nmdp.gl.AlleleList;
 import org.nmdp.gl.GenotypeList;
 import org.nmdp.gl.client.GlClient;
 import org.nmdp.service.epitope.EpitopeServiceTestData;
@@ -55,6 +62,8 @@ import org.nmdp.service.epitope.domain.DetailRace;
 import org.nmdp.service.epitope.domain.MatchGrade;
 import org.nmdp.service.epitope.domain.MatchResult;
 
+import com.codahale.metrics.MetricRegistry;
+
 @RunWith(MockitoJUnitRunner.class)
 public class MatchServiceImplTest {
 
@@ -66,15 +75,12 @@ public class MatchServiceImplTest {
 	@Mock
 	private Function<String, GenotypeList> glResolver;
 
-	private Function<String, String> glStringFilter;
-	
 	private MatchServiceImpl service;
 
 	@Before
 	public void setUp() throws Exception {
 		glClient = getTestGlClient();
-		glStringFilter = getTestGlStringFilter();
-		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, glStringFilter, freqService, 0.01, 1.0E-5);
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 0.0, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
 		when(glClient.createLocus("HLA-DPB1")).thenReturn(aLocus());
 		when(freqService.getFrequency(any(DetailRace.class), anyString())).thenReturn(1E-5);
 	}
@@ -97,12 +103,26 @@ public class MatchServiceImplTest {
 		// aGenotypeList contains 3 types on each side with no overlaps 
 		assertThat(allelePairs.size(), equalTo(9));
 	}
+
+	@Test
+	public void testGetAllelePairs_AlleleCodeVectorsCached() throws Exception {
+		GenotypeList gl = aGenotypeList(aGenotype(
+				new AlleleList("HLA-DPB1*09:AB", group1Alleles()), 
+				new AlleleList("HLA-DPB1*03:AB", group2Alleles())));
+		Map<AllelePair, Double> expect = service.getAllelePairs(gl, CAU);
+		assertThat(service.getAllelePairs(gl, CAU), equalTo(expect));
+		verify(freqService, times(4)).getFrequency(eq(CAU), anyString());
+		// recomputed for a new version of the reference data
+		when(freqService.getVersion()).thenReturn(1);
+		assertThat(service.getAllelePairs(gl, CAU), equalTo(expect));
+		verify(freqService, times(8)).getFrequency(eq(CAU), anyString());
+	}
 	
 	@Test
 	public void testGetMatchGrade() throws Exception {
 		AllelePair rp = new AllelePair(group1Alleles().get(0), 1, group2Alleles().get(0), 2, CAU);
 		AllelePair dp = new AllelePair(group2Alleles().get(0), 2, group3Alleles().get(0), 3, CAU);
-		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, glStringFilter, freqService, 0.01, 1.0E-5);
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 0.0, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
 		assertThat(service.getMatchGrade(rp, dp), equalTo(MatchGrade.GVH_NONPERMISSIVE));
 	}
 
@@ -161,5 +181,215 @@ public class MatchServiceImplTest {
 		MatchResult test = service.getMatch(rgl, null, dgl, null);
 		assertThat(test.getMatchGrade(), equalTo(MatchGrade.NONPERMISSIVE_UNDEFINED));
 	}
-	
+
+	@Test
+	public void testGetComplexity() throws Exception {
+		// 3 alleles per haplotype: 9 pairs on each side, 9 + 9 + 9 * 9 
+		assertThat(service.getComplexity(aLocus(), aGenotypeList(), aGenotypeList()), equalTo(99L));
+	}
+
+	@Test(expected=MatchLimitException.class)
+	public void testGetMatch_ComplexityBudgetExceeded() throws Exception {
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, 10L, 0L, LimitMode.FAIL, 0.0, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
+		service.getMatch(aGenotypeList(), null, aGenotypeList(), null);
+	}
+
+	@Test
+	public void testGetMatch_ComplexityBudgetExceeded_GroupOnly() throws Exception {
+		MatchResult full = service.getMatch(aGenotypeList(), null, aGenotypeList(), null);
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, 10L, 0L, LimitMode.GROUP_ONLY, 0.0, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
+		MatchResult test = service.getMatch(aGenotypeList(), null, aGenotypeList(), null);
+		assertThat(test.getMatchGrade(), equalTo(full.getMatchGrade()));
+		assertThat(test.getMatchProbability(), nullValue());
+	}
+
+	@Test
+	public void testGetGroupMatch() throws Exception {
+		GenotypeList rgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group3Alleles().get(0)),
+				anAlleleList(group1Alleles().get(0), group3Alleles().get(0))));
+		GenotypeList dgl = new GenotypeList("1", aGenotype( 
+				anAlleleList(group2Alleles().get(0)), 
+				anAlleleList(group2Alleles().get(0))));
+		MatchResult test = service.getGroupMatch(aLocus(), rgl, CAU, dgl, CAU);
+		assertThat(test.getMatchGrade(), equalTo(MatchGrade.NONPERMISSIVE_UNDEFINED));
+	}
+
+	@Test
+	public void testGetGroupMatch_Match() throws Exception {
+		GenotypeList rgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group1Alleles().get(0)),
+				anAlleleList(group2Alleles().get(0))));
+		GenotypeList dgl = new GenotypeList("1", aGenotype( 
+				anAlleleList(group2Alleles().get(0)), 
+				anAlleleList(group1Alleles().get(0))));
+		assertThat(service.getGroupMatch(aLocus(), rgl, CAU, dgl, CAU).getMatchGrade(), equalTo(MatchGrade.MATCH));
+		dgl = new GenotypeList("1", aGenotype( 
+				anAlleleList(group2Alleles().get(0)), 
+				anAlleleList(group1Alleles().get(0), group1Alleles().get(1))));
+		assertThat(service.getGroupMatch(aLocus(), rgl, CAU, dgl, CAU).getMatchGrade(), equalTo(MatchGrade.POTENTIAL));
+	}
+
+	@Test(expected=MatchLimitException.class)
+	public void testDeadline() throws Exception {
+		MatchServiceImpl.Deadline deadline = new MatchServiceImpl.Deadline(1);
+		Thread.sleep(5);
+		for (int i = 0; i < MatchServiceImpl.Deadline.CHECK_INTERVAL; i++) {
+			deadline.check();
+		}
+	}
+
+	@Test
+	public void testGetMatchGrade_SameAsFullMatch() throws Exception {
+		GenotypeList rgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group3Alleles().get(0)),
+				anAlleleList(group1Alleles().get(0), group3Alleles().get(0))));
+		GenotypeList dgl = new GenotypeList("1", aGenotype( 
+				anAlleleList(group2Alleles().get(0)), 
+				anAlleleList(group2Alleles().get(0))));
+		MatchResult full = service.getMatch(rgl, null, dgl, null);
+		MatchResult test = service.getMatchGrade(rgl, null, dgl, null);
+		assertThat(test.getMatchGrade(), equalTo(full.getMatchGrade()));
+		assertThat(test.getMatchProbability(), nullValue());
+		assertThat(full.getPairsEvaluated(), equalTo(2L));
+	}
+
+	@Test
+	public void testGetMatchGrade_StopsAtPotential() throws Exception {
+		// the first recipient pair meets both its own typing and other typings among the donor pairs, 
+		// so the grade is POTENTIAL before the second recipient pair is evaluated
+		MatchResult full = service.getMatch(aGenotypeList(), null, aGenotypeList(), null);
+		MatchResult test = service.getMatchGrade(aGenotypeList(), null, aGenotypeList(), null);
+		assertThat(full.getMatchGrade(), equalTo(MatchGrade.POTENTIAL));
+		assertThat(test.getMatchGrade(), equalTo(MatchGrade.POTENTIAL));
+		assertThat(full.getPairsEvaluated(), equalTo(81L));
+		assertThat(test.getPairsEvaluated() <= 9L, equalTo(true));
+	}
+
+	@Test
+	public void testGetMatch_Pruned() throws Exception {
+		// 10:01 accounts for 1% of its haplotype and 06:01 for 0.5% of its haplotype
+		when(freqService.getFrequency(any(DetailRace.class), anyString())).thenReturn(0.99);
+		when(freqService.getFrequency(any(DetailRace.class), eq("10:01"))).thenReturn(0.01);
+		when(freqService.getFrequency(any(DetailRace.class), eq("06:01"))).thenReturn(0.005);
+		GenotypeList rgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group1Alleles().get(0), group1Alleles().get(1)),
+				anAlleleList(group2Alleles().get(0), group2Alleles().get(1))));
+		GenotypeList dgl = new GenotypeList("1", aGenotype( 
+				anAlleleList(group3Alleles().get(0)), 
+				anAlleleList(group3Alleles().get(1))));
+		MatchResult full = service.getMatch(rgl, CAU, dgl, CAU);
+		assertThat(full.getDiscardedProbability(), nullValue());
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 0.02, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
+		MatchResult test = service.getMatch(rgl, CAU, dgl, CAU);
+		assertThat(test.getPairsEvaluated(), equalTo(1L));
+		assertThat(full.getPairsEvaluated(), equalTo(4L));
+		// 1 - (0.99 / 1.0) * (0.99 / 0.995), rounded up
+		assertThat(test.getDiscardedProbability(), closeTo(0.01498, 1.0E-6));
+		assertThat(test.getMatchGrade(), equalTo(full.getMatchGrade()));
+		assertThat(Math.abs(test.getGvhNonPermissiveMismatchProbability() - full.getGvhNonPermissiveMismatchProbability()) 
+				<= test.getDiscardedProbability(), equalTo(true));
+	}
+
+	@Test
+	public void testPrune_KeepsOneAllele() throws Exception {
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 1.0, 1000L, 0L, new MatchMetrics(new MetricRegistry()));
+		List<MatchServiceImpl.AlleleFrequency> list = Arrays.asList(
+				new MatchServiceImpl.AlleleFrequency(group1Alleles().get(0), 0.1),
+				new MatchServiceImpl.AlleleFrequency(group1Alleles().get(1), 0.3));
+		List<MatchServiceImpl.AlleleFrequency> test = service.prune(list);
+		assertThat(test.size(), equalTo(1));
+		assertThat(test.get(0).allele, equalTo(group1Alleles().get(1)));
+	}
+
+	@Test
+	public void testGetMatch_Batch() throws Exception {
+		when(glResolver.apply("r")).thenReturn(aGenotypeList());
+		when(glResolver.apply("d")).thenReturn(aGenotypeList());
+		MatchResult expect = service.getMatch("r", CAU, "d", CAU);
+		MatchBatch batch = MatchBatch.start();
+		try {
+			assertThat(service.getMatch("r", CAU, "d", CAU).getMatchGrade(), equalTo(expect.getMatchGrade()));
+			assertThat(service.getMatch("r", CAU, "d", null).getMatchProbability(), equalTo(expect.getMatchProbability()));
+			assertThat(service.getMatchGrade("r", CAU, "d", CAU).getMatchGrade(), equalTo(expect.getMatchGrade()));
+			assertThat(batch.size(), equalTo(3));
+		} finally {
+			MatchBatch.stop();
+		}
+		// once without the batch, once for each distinct typing of the batch
+		verify(glResolver, times(2)).apply("r");
+		verify(glResolver, times(3)).apply("d");
+		assertThat(MatchBatch.current(), nullValue());
+	}
+
+	@Test
+	public void testGetMatch_ReverseCached() throws Exception {
+		GenotypeList rgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group3Alleles().get(0), group3Alleles().get(1)),
+				anAlleleList(group3Alleles().get(0), group3Alleles().get(1))));
+		GenotypeList dgl = new GenotypeList("1", aGenotype(
+				anAlleleList(group1Alleles().get(0), group2Alleles().get(0)),
+				anAlleleList(group1Alleles().get(1))));
+		MatchResult expect = service.getMatch(dgl, CAU, rgl, CAU);
+		service = new MatchServiceImpl(getTestEpitopeService(), glResolver, glClient, freqService, 0.01, 1.0E-5, Long.MAX_VALUE, 0L, LimitMode.FAIL, 0.0, 1000L, 1000L, new MatchMetrics(new MetricRegistry()));
+		MatchCost cost = MatchCost.start();
+		MatchResult forward, test, again;
+		try {
+			forward = service.getMatch(rgl, CAU, dgl, CAU);
+			test = service.getMatch(dgl, CAU, rgl, CAU);
+			again = service.getMatch(rgl, CAU, dgl, CAU);
+		} finally {
+			MatchCost.stop();
+		}
+		// the reverse match, and the forward match again, are served from the result of the forward match
+		assertThat(cost.getGenotypes(), equalTo(2L));
+		assertThat(forward.getMatchGrade(), equalTo(MatchGrade.HVG_NONPERMISSIVE));
+		assertThat(forward.getPairsEvaluated(), equalTo(expect.getPairsEvaluated()));
+		assertThat(again.getMatchGrade(), equalTo(MatchGrade.HVG_NONPERMISSIVE));
+		assertThat(again.getMatchProbability(), equalTo(forward.getMatchProbability()));
+		assertThat(again.getPairsEvaluated(), equalTo(0L));
+		assertThat(test.getMatchGrade(), equalTo(expect.getMatchGrade()));
+		assertThat(test.getMatchProbability(), equalTo(expect.getMatchProbability()));
+		assertThat(test.getPermissiveMismatchProbability(), equalTo(expect.getPermissiveMismatchProbability()));
+		assertThat(test.getHvgNonPermissiveMismatchProbability(), equalTo(expect.getHvgNonPermissiveMismatchProbability()));
+		assertThat(test.getGvhNonPermissiveMismatchProbability(), equalTo(expect.getGvhNonPermissiveMismatchProbability()));
+		assertThat(test.getUnknownProbability(), equalTo(expect.getUnknownProbability()));
+		// no pairs were evaluated for the matches served from the cache
+		assertThat(test.getPairsEvaluated(), equalTo(0L));
+	}
+
+	@Test
+	public void testGetMatch_Cost() throws Exception {
+		MatchCost cost = MatchCost.start();
+		try {
+			service.getMatch(aGenotypeList(), null, aGenotypeList(), null);
+		} finally {
+			MatchCost.stop();
+		}
+		// aGenotypeList contains one genotype of 3 types on each side
+		assertThat(cost.getGenotypes(), equalTo(2L));
+		assertThat(cost.getAlleles(), equalTo(12L));
+		assertThat(cost.getFrequencyLookups(), equalTo(12L));
+		assertThat(cost.getRecipientPairs(), equalTo(9L));
+		assertThat(cost.getDonorPairs(), equalTo(9L));
+		assertThat(cost.getComparisons(), equalTo(81L));
+		assertThat(MatchCost.current(), nullValue());
+	}
+
+	@Test
+	public void testGetMatchGrade_Cost() throws Exception {
+		MatchCost cost = MatchCost.start();
+		MatchResult test;
+		try {
+			test = service.getMatchGrade(aGenotypeList(), null, aGenotypeList(), null);
+		} finally {
+			MatchCost.stop();
+		}
+		// only the pairs compared before the grade was determined
+		assertThat(cost.getRecipientPairs(), equalTo(9L));
+		assertThat(cost.getDonorPairs(), equalTo(9L));
+		assertThat(cost.getComparisons(), equalTo(test.getPairsEvaluated()));
+		assertThat(cost.getComparisons() <= 9L, equalTo(true));
+	}
+
 }
@@ -0,0 +1,151 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+package org.nmdp.service.epitope.service;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Meter;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class SingleFlightTest {
+
+	private Meter requests = new Meter();
+	private Meter coalesced = new Meter();
+	private SingleFlight<String, String> flight = new SingleFlight<>(requests, coalesced);
+	private AtomicInteger computations = new AtomicInteger();
+	private CountDownLatch started = new CountDownLatch(1);
+	private CountDownLatch release = new CountDownLatch(1);
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	private String compute(String value) {
+		computations.incrementAndGet();
+		started.countDown();
+		Uninterruptibles.awaitUninterruptibly(release);
+		if (null == value) throw new IllegalStateException("failed");
+		return value;
+	}
+
+	/**
+	 * start a computation, and a second one for the same key once the first is in flight
+	 */
+	private Future<String> coalesce() throws Exception {
+		return coalesce(() -> flight.apply("key", () -> compute("other")));
+	}
+
+	private Future<String> coalesce(Callable<String> call) throws Exception {
+		started.await();
+		Future<String> second = executor.submit(call);
+		while (coalesced.getCount() == 0) Thread.sleep(1);
+		release.countDown();
+		return second;
+	}
+
+	@Test
+	public void testApply() throws Exception {
+		release.countDown();
+		assertThat(flight.apply("key", () -> compute("value")), equalTo("value"));
+		assertThat(flight.apply("key", () -> compute("other")), equalTo("other"));
+		assertThat(computations.get(), equalTo(2));
+		assertThat(requests.getCount(), equalTo(2L));
+		assertThat(coalesced.getCount(), equalTo(0L));
+	}
+
+	@Test
+	public void testApply_Coalesced() throws Exception {
+		Future<String> first = executor.submit(() -> flight.apply("key", () -> compute("value")));
+		Future<String> second = coalesce();
+		assertThat(first.get(), equalTo("value"));
+		assertThat(second.get(), equalTo("value"));
+		assertThat(computations.get(), equalTo(1));
+		assertThat(requests.getCount(), equalTo(2L));
+		assertThat(coalesced.getCount(), equalTo(1L));
+	}
+
+	@Test
+	public void testApply_CoalescedException() throws Exception {
+		Future<String> first = executor.submit(() -> flight.apply("key", () -> compute(null)));
+		Future<String> second = coalesce();
+		for (Future<String> future : Arrays.asList(first, second)) {
+			try {
+				future.get();
+				throw new AssertionError("expected exception");
+			} catch (ExecutionException e) {
+				assertThat(e.getCause().getMessage(), equalTo("failed"));
+			}
+		}
+		assertThat(computations.get(), equalTo(1));
+	}
+
+	@Test
+	public void testApply_CoalescedExceptionNotShared() throws Exception {
+		Future<String> first = executor.submit(() -> flight.apply("key", () -> compute(null)));
+		Future<String> second = coalesce(() -> flight.apply("key", () -> compute("other"), Long.MAX_VALUE, 
+				e -> !(e instanceof IllegalStateException)));
+		try {
+			first.get();
+			throw new AssertionError("expected exception");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause().getMessage(), equalTo("failed"));
+		}
+		assertThat(second.get(), equalTo("other"));
+		assertThat(computations.get(), equalTo(2));
+		assertThat(coalesced.getCount(), equalTo(1L));
+	}
+
+	@Test
+	public void testApply_WaitBounded() throws Exception {
+		Future<String> first = executor.submit(() -> flight.apply("key", () -> compute("value")));
+		started.await();
+		assertThat(flight.apply("key", () -> "own", 1000000L, e -> true), equalTo("own"));
+		assertThat(coalesced.getCount(), equalTo(1L));
+		release.countDown();
+		assertThat(first.get(), equalTo("value"));
+		assertThat(computations.get(), equalTo(1));
+	}
+
+}
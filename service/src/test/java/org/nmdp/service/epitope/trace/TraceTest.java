@@ -0,0 +1,88 @@
+/*
+
+    epitope-service  T-cell epitope group matching service for HLA-DPB1 locus.
+    Copyright (c) 2014-2015 National Marrow Donor Program (NMDP)
+    
+    This library is free software; you can redistribute it and/or modify it
+    under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation; either version 3 of the License, or (at
+    your option) any later version.
+    
+    This library is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; with out even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+    License for more details.
+    
+    You should have received a copy of the GNU Lesser General Public License
+    along with this library;  if not, write to the Free Software Foundation,
+    Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307  USA.
+    
+    > http://www.gnu.org/licenses/lgpl.html
+
+*/
+
+
+package org.nmdp.service.epitope.trace;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.nmdp.service.epitope.EpitopeServiceTestData.anAllele;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.nmdp.service.epitope.domain.MatchGrade;
+import org.nmdp.service.epitope.service.AllelePair;
+
+public class TraceTest {
+
+	@After
+	public void tearDown() throws Exception {
+		Trace.disable();
+	}
+
+	@Test
+	public void testCurrent_Disabled() throws Exception {
+		assertThat(Trace.current(), nullValue());
+	}
+
+	@Test
+	public void testNext_Render() throws Exception {
+		Trace trace = Trace.enable();
+		trace.setContext(Trace.Context.RECIPIENT);
+		trace.dropped(anAllele("01:01"));
+		trace.pruned(anAllele("02:01"), 0.5);
+		trace.pair(anAllele("03:01"), 2, 0.25, anAllele("04:01"), 3, 0.75);
+		trace.setContext(Trace.Context.MATCH);
+		AllelePair rp = new AllelePair(anAllele("03:01"), 2, anAllele("04:01"), 3, null);
+		AllelePair dp = new AllelePair(anAllele("09:01"), 1, anAllele("04:01"), 3, null);
+		trace.comparison(rp, 0.5, dp, 0.25, MatchGrade.HVG_NONPERMISSIVE, 0.125);
+		trace.limited("too complex");
+		assertThat(trace.next(), contains(
+				"r:01:01(p:0.0,dropped)",
+				"r:02:01(p:0.5,pruned)",
+				"r:03:01(g:2,p:0.25)+04:01(g:3,p:0.75)",
+				"m:r:03:01(g:2)+04:01(g:3):p:0.5,d:04:01(g:3)+09:01(g:1):p:0.25,m:HVG_NONPERMISSIVE(p:0.125)",
+				"m:group only (too complex)"));
+	}
+
+	@Test
+	public void testNext_Segments() throws Exception {
+		Trace trace = Trace.enable();
+		for (int i = 0; i < Trace.INITIAL_CAPACITY; i++) {
+			trace.dropped(anAllele("01:01"));
+		}
+		List<String> first = trace.next();
+		trace.dropped(anAllele("02:01"));
+		List<String> second = trace.next();
+		assertThat(first.size(), equalTo(Trace.INITIAL_CAPACITY));
+		assertThat(first.get(Trace.INITIAL_CAPACITY - 1), equalTo("01:01(p:0.0,dropped)"));
+		assertThat(second, contains("02:01(p:0.0,dropped)"));
+		assertThat(trace.next(), empty());
+	}
+
+}